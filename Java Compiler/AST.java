@@ -6,32 +6,51 @@ import java.util.Scanner;
 import java.util.Set;
 
 public class AST {
-    private List<Token> tokens;
+    private TokenStream tokens;
     private int position = 0;
-    private List<String> errors = new ArrayList<>();
-    private List<String> warnings = new ArrayList<>();
-    private SymbolTable symbolTable = new SymbolTable(); // Initialize the SymbolTable
+    private SemanticChecker checker;
+    private List<String> errors;
     private int currentScope = 0;
-    private Set<String> declaredVariables = new HashSet<>();
-    private Set<String> usedVariables = new HashSet<>();
-    private Set<String> assignedVariables = new HashSet<>();
 
     public AST(List<Token> tokens) {
+        this(new ListTokenStream(tokens));
+    }
+
+    public AST(TokenStream tokens) {
+        this(tokens, new SymbolInterner());
+    }
+
+    // symbols should be the interner the tokens were lexed with
+    public AST(TokenStream tokens, SymbolInterner symbols) {
         this.tokens = tokens;
+        this.checker = new SemanticChecker(symbols);
+        this.errors = checker.getErrors();
     }
 
     private Token currentToken() {
-        return position < tokens.size() ? tokens.get(position) : null;
+        return tokens.peek();
+    }
+
+    private TokenType currentType() {
+        return tokens.peekType();
     }
 
     private Token nextToken() {
-        return position < tokens.size() ? tokens.get(position++) : null;
+        Token token = tokens.nextToken();
+        if (token != null) {
+            position++;
+        }
+        return token;
     }
 
     private void expectToken(TokenType expectedType) {
-        Token token = nextToken();
-        if (token == null || token.getType() != expectedType) {
-            error("Expected '" + expectedType + "' but got '" + (token != null ? token.getType() : "EOF") + "'");
+        TokenType type = currentType();
+        if (type != null) {
+            tokens.skip();
+            position++;
+        }
+        if (type != expectedType) {
+            error("Expected '" + expectedType + "' but got '" + (type != null ? type : "EOF") + "'");
         }
     }
 
@@ -43,8 +62,7 @@ public class AST {
         ProgramASTNode programASTNode = new ProgramASTNode();
         programASTNode.addChild(Block());
         programASTNode.addChild(new EOFASTNode());
-        checkUnusedVariables();
-        checkUnassignedVariables();
+        checker.finish();
         return programASTNode;
     }
 
@@ -53,7 +71,9 @@ public class AST {
         expectToken(TokenType.LEFT_BRACE);
         blockASTNode.addChild(new LeftBraceASTNode());
         currentScope++; // Increase scope level
+        checker.openBlock();
         StatementList(blockASTNode);
+        checker.closeBlock();
         currentScope--; // Decrease scope level
         expectToken(TokenType.RIGHT_BRACE);
         blockASTNode.addChild(new RightBraceASTNode());
@@ -61,7 +81,7 @@ public class AST {
     }
 
     private void StatementList(BlockASTNode blockASTNode) {
-        while (currentToken() != null && currentToken().getType() != TokenType.RIGHT_BRACE) {
+        while (currentType() != null && currentType() != TokenType.RIGHT_BRACE) {
             ASTNode statementASTNode = Statement();
             // if (statementASTNode != null) {
             blockASTNode.addChild(statementASTNode);
@@ -70,35 +90,35 @@ public class AST {
     }
 
     private ASTNode Statement() {
-        Token token = currentToken();
+        TokenType type = currentType();
 
-        if (token.getType() == TokenType.INT) {
+        if (type == TokenType.INT) {
             return VariableDeclaration();
         } 
-        else if (token.getType() == TokenType.STRING) {
+        else if (type == TokenType.STRING) {
             return VariableDeclaration();
         } 
-        else if (token.getType() == TokenType.BOOLEAN) {
+        else if (type == TokenType.BOOLEAN) {
             return VariableDeclaration();
         } 
-        else if (token.getType() == TokenType.ID) {
+        else if (type == TokenType.ID) {
             return AssignmentStatement();
         } 
-        else if (token.getType() == TokenType.IF) {
+        else if (type == TokenType.IF) {
             return IfStatement();
         } 
-        else if (token.getType() == TokenType.PRINT) {
+        else if (type == TokenType.PRINT) {
             return PrintStatement();
         } 
-        else if (token.getType() == TokenType.WHILE) {
+        else if (type == TokenType.WHILE) {
             return WhileStatement();
         } 
-        else if (token.getType() == TokenType.LEFT_BRACE) {
+        else if (type == TokenType.LEFT_BRACE) {
             return Block();
         }
         /*
          * else {
-         * error("Unexpected token: " + token.getType());
+         * error("Unexpected token: " + type);
          * }
          */
         return null;
@@ -114,28 +134,8 @@ public class AST {
 
             Token idToken = nextToken(); // Get the identifier token
             // System.out.println(idToken.getValue());
-            String name = idToken.getValue(); // Variable name
-            varDeclASTNode.addChild(new IdentifierASTNode(name));
-            declaredVariables.add(name);
-
-            SymbolTableEntry existingEntry = /*symbolTable.getEntryAcrossScopes(name);*/ symbolTable.getEntry(name, currentScope);
-            if (existingEntry != null) {
-                errors.add("Variable '" + name + "' already declared in the current scope at line " + existingEntry.getLine());
-                if (existingEntry.getScope() < currentScope) {
-                    symbolTable.addEntry(name, type, currentScope, idToken.getLine());
-                } 
-                else {
-                    // Variable is redeclared in the same or lower scope, which is an error
-                    if (!existingEntry.getType().equals(type)) {
-                        errors.add("Variable '" + name + "' is already declared as '" + existingEntry.getType() +
-                                "' in the same scope but attempted to declare as '" + type + "'.");
-                    }
-                }
-            } 
-            else {
-                // Add entry to symbol table
-                symbolTable.addEntry(name, type, currentScope, idToken.getLine());
-            }
+            varDeclASTNode.addChild(new IdentifierASTNode(idToken.getValue())); // Variable name
+            checker.declare(ValueType.of(token.getType()), idToken, currentScope);
         } 
         else {
             errors.add("Expected variable type but got '" + (token != null ? token.getValue() : "EOF") + "'");
@@ -154,78 +154,12 @@ public class AST {
         ASTNode exprNode = Expression();
         assignStmtASTNode.addChild(exprNode);
         // System.out.println(exprNode);
-        SymbolTableEntry entry = symbolTable.getEntry(idToken.getValue(), currentScope); // Check only current scope
-        if (entry == null) {
-            entry = symbolTable.getEntryAcrossScopes(idToken.getValue()); // Now check across scopes if not found
-        }
-        if (entry != null) {
-            usedVariables.add(idToken.getValue());
-            assignedVariables.add(idToken.getValue());
-            // Variable exists in the current scope
-            String varType = entry.getType(); // Type of the variable
-            // Determine the type of the expression
-            String exprType = determineExpressionType(exprNode);
-            // Check if the types match
-            if (!varType.equals(exprType)) {
-                errors.add("Variable '" + idToken.getValue() + "' declared as '" + varType +
-                        "' but assigned a value of type '" + exprType + "'.");
-            }
-        } 
-        else {
-            errors.add("Variable '" + idToken.getValue() + "' not declared.");
-        }
+        checker.assign(idToken, exprNode, currentScope);
 
         return assignStmtASTNode;
 
     }
 
-    private String determineExpressionType(ASTNode exprNode) {
-        // Implement logic to determine the type of the expression based on user input
-        if (exprNode instanceof IntegerExpressionASTNode) {
-            return "int";
-        }
-        else if (exprNode instanceof BooleanValueASTNode) {
-            return "boolean";
-        }
-        else if (exprNode instanceof BooleanExpressionASTNode) {
-            return "boolean";
-        } 
-        else if (exprNode instanceof StringExpressionASTNode) {
-            return "string";
-        } 
-        else if (exprNode instanceof StringASTNode) {
-            return "string";
-        } 
-        else if (exprNode instanceof IdentifierASTNode) {
-            String variableName = exprNode.name.substring(4); // Extract the name from id
-
-            SymbolTableEntry entry = symbolTable.getEntry(variableName, currentScope);
-            if (entry != null) {
-                return entry.getType();
-            } else {
-                errors.add("Variable '" + variableName + "' not found in the symbol table.");
-                return "unknown";
-            }
-        }
-        return "unknown"; // Default return value
-    }
-
-    private void checkUnusedVariables() {
-        for (String variable : declaredVariables) {
-            if (!usedVariables.contains(variable)) {
-                warnings.add("Variable '" + variable + "' declared but never used.");
-            }
-        }
-    }
-
-    private void checkUnassignedVariables() {
-        for (String variable : declaredVariables) {
-            if (!assignedVariables.contains(variable)) {
-                warnings.add("Variable '" + variable + "' declared but never assigned.");
-            }
-        }
-    }
-
     private IfStatementASTNode IfStatement() {
         expectToken(TokenType.IF);
         IfStatementASTNode ifStmtASTNode = new IfStatementASTNode();
@@ -344,11 +278,11 @@ public class AST {
     }
 
     public List<String> getWarnings() {
-        return warnings;
+        return checker.getWarnings();
     }
 
     public SymbolTable getSymbolTable() {
-        return symbolTable;
+        return checker.getSymbolTable();
     }
 
     /*public static void main(String[] args) {
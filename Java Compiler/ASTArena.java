@@ -0,0 +1,247 @@
+import java.util.Arrays;
+
+// A whole AST in parallel arrays. Node n has a kind, its first child, its next sibling and the
+// index of the token it was built from (or -1) in the TokenBuffer the arena reads its values
+// from. A built arena holds 13 bytes per node, with no per-node object, name string or child list.
+public class ASTArena {
+    private static final ASTNode.Kind[] KINDS = ASTNode.Kind.values();
+    private static final String[] LABELS = new String[KINDS.length];
+    // Kinds whose label is followed by the value of their token
+    private static final boolean[] HAS_VALUE = new boolean[KINDS.length];
+    private static final int INITIAL_CAPACITY = 64;
+
+    static {
+        label(ASTNode.Kind.PROGRAM, "Program");
+        label(ASTNode.Kind.EOF, "$");
+        label(ASTNode.Kind.BLOCK, "Block");
+        label(ASTNode.Kind.LEFT_BRACE, "{");
+        label(ASTNode.Kind.RIGHT_BRACE, "}");
+        label(ASTNode.Kind.LEFT_PARENTHESIS, "(");
+        label(ASTNode.Kind.RIGHT_PARENTHESIS, ")");
+        label(ASTNode.Kind.VARIABLE_DECLARATION, "VarDeclaration");
+        valueLabel(ASTNode.Kind.VARIABLE_TYPE, "Type: ");
+        label(ASTNode.Kind.ASSIGNMENT_STATEMENT, "AssignStatement");
+        label(ASTNode.Kind.IF_STATEMENT, "IfStatement");
+        label(ASTNode.Kind.PRINT_STATEMENT, "PrintStatement");
+        label(ASTNode.Kind.WHILE_STATEMENT, "WhileStatement");
+        label(ASTNode.Kind.INTEGER_EXPRESSION, "IntExpr");
+        valueLabel(ASTNode.Kind.INTEGER_LITERAL, "Number: ");
+        label(ASTNode.Kind.INT_OP, "IntOp: +");
+        label(ASTNode.Kind.BOOLEAN_EXPRESSION, "BoolExpr");
+        valueLabel(ASTNode.Kind.BOOLEAN_OPERATOR, "BoolOp: ");
+        valueLabel(ASTNode.Kind.BOOLEAN_VALUE, "BoolVal: ");
+        label(ASTNode.Kind.STRING_EXPRESSION, "StrgExpr");
+        valueLabel(ASTNode.Kind.STRING, "String: ");
+        valueLabel(ASTNode.Kind.IDENTIFIER, "ID: ");
+    }
+
+    private static void label(ASTNode.Kind kind, String label) {
+        LABELS[kind.ordinal()] = label;
+    }
+
+    private static void valueLabel(ASTNode.Kind kind, String prefix) {
+        LABELS[kind.ordinal()] = prefix;
+        HAS_VALUE[kind.ordinal()] = true;
+    }
+
+    private final TokenBuffer tokens;
+    private byte[] kinds;
+    private int[] firstChild;
+    private int[] nextSibling;
+    private int[] tokenIndex;
+    // Only needed while children are being appended
+    private int[] lastChild;
+    private int size;
+
+    public ASTArena(TokenBuffer tokens) {
+        this.tokens = tokens;
+        this.kinds = new byte[INITIAL_CAPACITY];
+        this.firstChild = new int[INITIAL_CAPACITY];
+        this.nextSibling = new int[INITIAL_CAPACITY];
+        this.tokenIndex = new int[INITIAL_CAPACITY];
+        this.lastChild = new int[INITIAL_CAPACITY];
+    }
+
+    // Adds a node with no children and returns it. The first node added is the root.
+    public int add(ASTNode.Kind kind, int token) {
+        checkNotTrimmed();
+        if (size == kinds.length) {
+            int capacity = Math.max(size * 2, INITIAL_CAPACITY);
+            kinds = Arrays.copyOf(kinds, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            tokenIndex = Arrays.copyOf(tokenIndex, capacity);
+            lastChild = Arrays.copyOf(lastChild, capacity);
+        }
+        kinds[size] = (byte) kind.ordinal();
+        firstChild[size] = -1;
+        nextSibling[size] = -1;
+        tokenIndex[size] = token;
+        lastChild[size] = -1;
+        return size++;
+    }
+
+    public int add(ASTNode.Kind kind) {
+        return add(kind, -1);
+    }
+
+    public void addChild(int parent, int child) {
+        checkNotTrimmed();
+        if (lastChild[parent] < 0) {
+            firstChild[parent] = child;
+        }
+        else {
+            nextSibling[lastChild[parent]] = child;
+        }
+        lastChild[parent] = child;
+    }
+
+    private void checkNotTrimmed() {
+        if (lastChild == null) {
+            throw new IllegalStateException("The arena has been trimmed; nothing can be added to it");
+        }
+    }
+
+    // Shrinks the arrays to the nodes added and drops the append bookkeeping. No nodes or
+    // children can be added afterwards, so a trimmed arena does not change.
+    public void trim() {
+        checkNotTrimmed();
+        kinds = Arrays.copyOf(kinds, size);
+        firstChild = Arrays.copyOf(firstChild, size);
+        nextSibling = Arrays.copyOf(nextSibling, size);
+        tokenIndex = Arrays.copyOf(tokenIndex, size);
+        lastChild = null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int root() {
+        return size > 0 ? 0 : -1;
+    }
+
+    public ASTNode.Kind kind(int node) {
+        return KINDS[kinds[node]];
+    }
+
+    public int firstChild(int node) {
+        return firstChild[node];
+    }
+
+    public int nextSibling(int node) {
+        return nextSibling[node];
+    }
+
+    public int token(int node) {
+        return tokenIndex[node];
+    }
+
+    public TokenBuffer getTokens() {
+        return tokens;
+    }
+
+    // The value of the node's token, such as an identifier's name or a literal's text
+    public String value(int node) {
+        return tokens.value(tokenIndex[node]);
+    }
+
+    public String label(int node) {
+        int kind = kinds[node];
+        return HAS_VALUE[kind] ? LABELS[kind] + value(node) : LABELS[kind];
+    }
+
+    // Same text as ASTNode.print(out, ""), printed with an explicit stack
+    public void print(OutputSink out) {
+        if (size == 0) {
+            return;
+        }
+        int[] stack = new int[16];
+        int depth = 0;
+        int node = 0;
+
+        while (true) {
+            int kind = kinds[node];
+            out.indent(depth).print(LABELS[kind]);
+            if (HAS_VALUE[kind]) {
+                out.print(value(node));
+            }
+            out.println();
+
+            if (firstChild[node] >= 0) {
+                if (depth == stack.length) {
+                    stack = Arrays.copyOf(stack, depth * 2);
+                }
+                stack[depth++] = node;
+                node = firstChild[node];
+                continue;
+            }
+            // Climb until there is a sibling to move to
+            while (nextSibling[node] < 0) {
+                if (depth == 0) {
+                    return;
+                }
+                node = stack[--depth];
+            }
+            node = nextSibling[node];
+        }
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    // Walks the arena from the root. The cursor remembers the path it came down, so it can
+    // move back to a parent without a parent array.
+    public class Cursor {
+        private int node = root();
+        private int[] path = new int[16];
+        private int depth;
+
+        public int node() {
+            return node;
+        }
+
+        public ASTNode.Kind kind() {
+            return ASTArena.this.kind(node);
+        }
+
+        public String value() {
+            return ASTArena.this.value(node);
+        }
+
+        public int depth() {
+            return depth;
+        }
+
+        public boolean toFirstChild() {
+            int child = firstChild[node];
+            if (child < 0) {
+                return false;
+            }
+            if (depth == path.length) {
+                path = Arrays.copyOf(path, depth * 2);
+            }
+            path[depth++] = node;
+            node = child;
+            return true;
+        }
+
+        public boolean toNextSibling() {
+            int sibling = nextSibling[node];
+            if (sibling < 0) {
+                return false;
+            }
+            node = sibling;
+            return true;
+        }
+
+        public boolean toParent() {
+            if (depth == 0) {
+                return false;
+            }
+            node = path[--depth];
+            return true;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+import java.util.List;
+
+// Builds the same tree as AST, into an ASTArena, reading the TokenBuffer by index so that no
+// Token or node objects are created. Like AST, it is meant for programs the Parser accepted,
+// and it runs the same semantic checks while it builds.
+public class ASTArenaBuilder {
+    private TokenBuffer tokens;
+    private ASTArena arena;
+    private int position = 0;
+    private SemanticChecker checker;
+    private List<String> errors;
+    private int currentScope = 0;
+
+    public ASTArenaBuilder(TokenBuffer tokens) {
+        this(tokens, new SymbolInterner());
+    }
+
+    // symbols should be the interner the tokens were lexed with
+    public ASTArenaBuilder(TokenBuffer tokens, SymbolInterner symbols) {
+        this.tokens = tokens;
+        this.arena = new ASTArena(tokens);
+        this.checker = new SemanticChecker(symbols);
+        this.errors = checker.getErrors();
+    }
+
+    private TokenType currentType() {
+        return position < tokens.size() ? tokens.type(position) : null;
+    }
+
+    private void expectToken(TokenType expectedType) {
+        TokenType type = currentType();
+        if (type != null) {
+            position++;
+        }
+        if (type != expectedType) {
+            errors.add("Expected '" + expectedType + "' but got '" + (type != null ? type : "EOF") + "'"
+                    + " at token index " + position);
+        }
+    }
+
+    private int node(ASTNode.Kind kind) {
+        return arena.add(kind);
+    }
+
+    // A leaf holding the current token, which is then consumed
+    private int leaf(ASTNode.Kind kind) {
+        return arena.add(kind, position++);
+    }
+
+    private void addChild(int parent, int child) {
+        // AST adds a null child for an expression it could not build; the arena leaves it out
+        if (child >= 0) {
+            arena.addChild(parent, child);
+        }
+    }
+
+    public ASTArena build() {
+        int program = node(ASTNode.Kind.PROGRAM);
+        addChild(program, Block());
+        addChild(program, node(ASTNode.Kind.EOF));
+        checker.finish();
+        arena.trim();
+        return arena;
+    }
+
+    private int Block() {
+        int block = node(ASTNode.Kind.BLOCK);
+        expectToken(TokenType.LEFT_BRACE);
+        addChild(block, node(ASTNode.Kind.LEFT_BRACE));
+        currentScope++; // Increase scope level
+        checker.openBlock();
+        while (currentType() != null && currentType() != TokenType.RIGHT_BRACE) {
+            addChild(block, Statement());
+        }
+        checker.closeBlock();
+        currentScope--; // Decrease scope level
+        expectToken(TokenType.RIGHT_BRACE);
+        addChild(block, node(ASTNode.Kind.RIGHT_BRACE));
+        return block;
+    }
+
+    private int Statement() {
+        TokenType type = currentType();
+
+        if (type == TokenType.INT || type == TokenType.STRING || type == TokenType.BOOLEAN) {
+            return VariableDeclaration();
+        }
+        else if (type == TokenType.ID) {
+            return AssignmentStatement();
+        }
+        else if (type == TokenType.IF) {
+            return IfStatement();
+        }
+        else if (type == TokenType.PRINT) {
+            return PrintStatement();
+        }
+        else if (type == TokenType.WHILE) {
+            return WhileStatement();
+        }
+        else if (type == TokenType.LEFT_BRACE) {
+            return Block();
+        }
+        return -1;
+    }
+
+    private int VariableDeclaration() {
+        int varDecl = node(ASTNode.Kind.VARIABLE_DECLARATION);
+        ValueType type = ValueType.of(currentType());
+        addChild(varDecl, leaf(ASTNode.Kind.VARIABLE_TYPE));
+
+        int id = position;
+        addChild(varDecl, leaf(ASTNode.Kind.IDENTIFIER)); // Variable name
+        String name = tokens.value(id);
+        checker.declare(type, name, checker.symbol(tokens.symbol(id), name), tokens.line(id), currentScope);
+        return varDecl;
+    }
+
+    private int AssignmentStatement() {
+        int assignStmt = node(ASTNode.Kind.ASSIGNMENT_STATEMENT);
+        int id = position;
+        addChild(assignStmt, leaf(ASTNode.Kind.IDENTIFIER)); // Variable name
+        expectToken(TokenType.ASSIGN);
+        int expr = Expression();
+        addChild(assignStmt, expr);
+        String name = tokens.value(id);
+        checker.assign(name, checker.symbol(tokens.symbol(id), name), arena, expr, currentScope);
+        return assignStmt;
+    }
+
+    private int IfStatement() {
+        expectToken(TokenType.IF);
+        int ifStmt = node(ASTNode.Kind.IF_STATEMENT);
+        addChild(ifStmt, BooleanExpression());
+        addChild(ifStmt, Block());
+        return ifStmt;
+    }
+
+    private int PrintStatement() {
+        expectToken(TokenType.PRINT);
+        int printStmt = node(ASTNode.Kind.PRINT_STATEMENT);
+        expectToken(TokenType.LEFT_PARENTHESIS);
+        addChild(printStmt, Expression());
+        expectToken(TokenType.RIGHT_PARENTHESIS);
+        return printStmt;
+    }
+
+    private int WhileStatement() {
+        int whileStmt = node(ASTNode.Kind.WHILE_STATEMENT);
+        expectToken(TokenType.WHILE);
+        addChild(whileStmt, BooleanExpression());
+        addChild(whileStmt, Block());
+        return whileStmt;
+    }
+
+    private int Expression() {
+        TokenType type = currentType();
+
+        if (type == TokenType.ID) {
+            return leaf(ASTNode.Kind.IDENTIFIER);
+        }
+        else if (type == TokenType.DIGIT) {
+            return IntegerExpression();
+        }
+        else if (type == TokenType.LEFT_PARENTHESIS) {
+            return BooleanExpression();
+        }
+        else if (type == TokenType.CHAR) {
+            return StringExpression();
+        }
+        else if (type == TokenType.BOOLEAN_VAL) {
+            return leaf(ASTNode.Kind.BOOLEAN_VALUE);
+        }
+        return -1;
+    }
+
+    private int BooleanExpression() {
+        TokenType type = currentType();
+        int boolExpr = node(ASTNode.Kind.BOOLEAN_EXPRESSION);
+        if (type == TokenType.BOOLEAN_VAL) {
+            addChild(boolExpr, leaf(ASTNode.Kind.BOOLEAN_VALUE));
+        }
+        else if (type == TokenType.LEFT_PARENTHESIS) {
+            expectToken(TokenType.LEFT_PARENTHESIS);
+            addChild(boolExpr, node(ASTNode.Kind.LEFT_PARENTHESIS));
+            addChild(boolExpr, Expression());
+            // The operator node holds the BOOLEAN_OP token, which expectToken then consumes
+            addChild(boolExpr, arena.add(ASTNode.Kind.BOOLEAN_OPERATOR, position));
+            expectToken(TokenType.BOOLEAN_OP);
+            addChild(boolExpr, Expression());
+            expectToken(TokenType.RIGHT_PARENTHESIS);
+            addChild(boolExpr, node(ASTNode.Kind.RIGHT_PARENTHESIS));
+        }
+        return boolExpr;
+    }
+
+    private int IntegerExpression() {
+        int intExpr = node(ASTNode.Kind.INTEGER_EXPRESSION);
+        if (currentType() == TokenType.DIGIT) {
+            addChild(intExpr, leaf(ASTNode.Kind.INTEGER_LITERAL));
+            if (currentType() == TokenType.INT_OP) {
+                addChild(intExpr, node(ASTNode.Kind.INT_OP));
+                expectToken(TokenType.INT_OP);
+                addChild(intExpr, Expression()); // Recursively parse the next integer expression
+            }
+        }
+        return intExpr;
+    }
+
+    private int StringExpression() {
+        int stringExpr = node(ASTNode.Kind.STRING_EXPRESSION);
+        if (currentType() == TokenType.CHAR) {
+            addChild(stringExpr, leaf(ASTNode.Kind.STRING));
+        }
+        return stringExpr;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public List<String> getWarnings() {
+        return checker.getWarnings();
+    }
+
+    public SymbolTable getSymbolTable() {
+        return checker.getSymbolTable();
+    }
+}
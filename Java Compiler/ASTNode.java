@@ -1,13 +1,44 @@
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Arrays;
-import java.util.Scanner;
 
-abstract class ASTNode {
-    String name;
+// The AST node classes are a closed set: every subclass is final and declared in this file.
+// Passes dispatch on kind with a switch, or through accept(), which is one final method with
+// a switch in it, so neither the call site nor the dispatch depends on how many node classes
+// there are.
+abstract sealed class ASTNode {
+    enum Kind {
+        PROGRAM,
+        EOF,
+        BLOCK,
+        LEFT_BRACE,
+        RIGHT_BRACE,
+        LEFT_PARENTHESIS,
+        RIGHT_PARENTHESIS,
+        VARIABLE_DECLARATION,
+        VARIABLE_TYPE,
+        ASSIGNMENT_STATEMENT,
+        IF_STATEMENT,
+        PRINT_STATEMENT,
+        WHILE_STATEMENT,
+        INTEGER_EXPRESSION,
+        INTEGER_LITERAL,
+        INT_OP,
+        BOOLEAN_EXPRESSION,
+        BOOLEAN_OPERATOR,
+        BOOLEAN_VALUE,
+        STRING_EXPRESSION,
+        STRING,
+        IDENTIFIER
+    }
+
+    final Kind kind;
+    final String name;
+    // Unmodifiable once the tree is sealed
     List<ASTNode> children = new ArrayList<>();
 
-    ASTNode(String name) {
+    ASTNode(Kind kind, String name) {
+        this.kind = kind;
         this.name = name;
     }
 
@@ -15,142 +46,241 @@ abstract class ASTNode {
         children.add(ASTnode);
     }
 
+    // Makes this node's and every descendant's children lists unmodifiable, so the tree can no
+    // longer change; addChild then throws UnsupportedOperationException
+    void seal() {
+        children = List.copyOf(children);
+        for (ASTNode child : children) {
+            child.seal();
+        }
+    }
+
     void print(String indent) {
-        System.out.println(indent + name);
+        print(System.out, indent);
+    }
+
+    void print(PrintStream out, String indent) {
+        out.println(indent + name);
+        for (ASTNode child : children) {
+            child.print(out, indent + "  ");
+        }
+    }
+
+    void print(OutputSink out, int depth) {
+        out.indent(depth).println(name);
+        for (ASTNode child : children) {
+            child.print(out, depth + 1);
+        }
+    }
+
+    // This node and every node under it
+    int countNodes() {
+        int count = 1;
         for (ASTNode child : children) {
-            child.print(indent + "  ");
+            count += child.countNodes();
+        }
+        return count;
+    }
+
+    final <R> R accept(ASTVisitor<R> visitor) {
+        switch (kind) {
+            case PROGRAM:
+                return visitor.visitProgram((ProgramASTNode) this);
+            case EOF:
+                return visitor.visitEOF((EOFASTNode) this);
+            case BLOCK:
+                return visitor.visitBlock((BlockASTNode) this);
+            case LEFT_BRACE:
+                return visitor.visitLeftBrace((LeftBraceASTNode) this);
+            case RIGHT_BRACE:
+                return visitor.visitRightBrace((RightBraceASTNode) this);
+            case LEFT_PARENTHESIS:
+                return visitor.visitLeftParenthesis((LeftParenthesisASTNode) this);
+            case RIGHT_PARENTHESIS:
+                return visitor.visitRightParenthesis((RightParenthesisASTNode) this);
+            case VARIABLE_DECLARATION:
+                return visitor.visitVariableDeclaration((VariableDeclarationASTNode) this);
+            case VARIABLE_TYPE:
+                return visitor.visitVariableType((VariableTypeASTNode) this);
+            case ASSIGNMENT_STATEMENT:
+                return visitor.visitAssignmentStatement((AssignmentStatementASTNode) this);
+            case IF_STATEMENT:
+                return visitor.visitIfStatement((IfStatementASTNode) this);
+            case PRINT_STATEMENT:
+                return visitor.visitPrintStatement((PrintStatementASTNode) this);
+            case WHILE_STATEMENT:
+                return visitor.visitWhileStatement((WhileStatementASTNode) this);
+            case INTEGER_EXPRESSION:
+                return visitor.visitIntegerExpression((IntegerExpressionASTNode) this);
+            case INTEGER_LITERAL:
+                return visitor.visitIntegerLiteral((IntegerLiteralASTNode) this);
+            case INT_OP:
+                return visitor.visitIntOp((IntOpASTNode) this);
+            case BOOLEAN_EXPRESSION:
+                return visitor.visitBooleanExpression((BooleanExpressionASTNode) this);
+            case BOOLEAN_OPERATOR:
+                return visitor.visitBooleanOperator((BooleanOperatorASTNode) this);
+            case BOOLEAN_VALUE:
+                return visitor.visitBooleanValue((BooleanValueASTNode) this);
+            case STRING_EXPRESSION:
+                return visitor.visitStringExpression((StringExpressionASTNode) this);
+            case STRING:
+                return visitor.visitString((StringASTNode) this);
+            case IDENTIFIER:
+                return visitor.visitIdentifier((IdentifierASTNode) this);
+            default:
+                throw new IllegalStateException("Unknown AST node kind " + kind);
         }
     }
 }
 
-class ProgramASTNode extends ASTNode {
+final class ProgramASTNode extends ASTNode {
     ProgramASTNode() {
-        super("Program");
+        super(Kind.PROGRAM, "Program");
     }
 }
 
-class EOFASTNode extends ASTNode {
+final class EOFASTNode extends ASTNode {
     EOFASTNode() {
-        super("$");
+        super(Kind.EOF, "$");
     }
 }
 
-class BlockASTNode extends ASTNode {
+final class BlockASTNode extends ASTNode {
     BlockASTNode() {
-        super("Block");
+        super(Kind.BLOCK, "Block");
     }
 }
 
-class LeftBraceASTNode extends ASTNode {
+final class LeftBraceASTNode extends ASTNode {
     LeftBraceASTNode() {
-        super("{");
+        super(Kind.LEFT_BRACE, "{");
     }
 }
 
-class RightBraceASTNode extends ASTNode {
+final class RightBraceASTNode extends ASTNode {
     RightBraceASTNode() {
-        super("}");
+        super(Kind.RIGHT_BRACE, "}");
     }
 }
 
-class LeftParenthesisASTNode extends ASTNode {
+final class LeftParenthesisASTNode extends ASTNode {
     LeftParenthesisASTNode() {
-        super("(");
+        super(Kind.LEFT_PARENTHESIS, "(");
     }
 }
 
-class RightParenthesisASTNode extends ASTNode {
+final class RightParenthesisASTNode extends ASTNode {
     RightParenthesisASTNode() {
-        super(")");
+        super(Kind.RIGHT_PARENTHESIS, ")");
     }
 }
 
-class VariableDeclarationASTNode extends ASTNode {
+final class VariableDeclarationASTNode extends ASTNode {
     VariableDeclarationASTNode() {
-        super("VarDeclaration");
+        super(Kind.VARIABLE_DECLARATION, "VarDeclaration");
     }
 }
 
-class VariableTypeASTNode extends ASTNode {
+final class VariableTypeASTNode extends ASTNode {
+    final ValueType type;
+
     VariableTypeASTNode(String value) {
-        super("Type: " + value);
+        super(Kind.VARIABLE_TYPE, "Type: " + value);
+        this.type = ValueType.of(value);
     }
 }
 
-class AssignmentStatementASTNode extends ASTNode {
+final class AssignmentStatementASTNode extends ASTNode {
     AssignmentStatementASTNode() {
-        super("AssignStatement");
+        super(Kind.ASSIGNMENT_STATEMENT, "AssignStatement");
     }
 }
 
-class IfStatementASTNode extends ASTNode {
+final class IfStatementASTNode extends ASTNode {
     IfStatementASTNode() {
-        super("IfStatement");
+        super(Kind.IF_STATEMENT, "IfStatement");
     }
 }
 
-class PrintStatementASTNode extends ASTNode {
+final class PrintStatementASTNode extends ASTNode {
     PrintStatementASTNode() {
-        super("PrintStatement");
+        super(Kind.PRINT_STATEMENT, "PrintStatement");
     }
 }
 
-class WhileStatementASTNode extends ASTNode {
+final class WhileStatementASTNode extends ASTNode {
     WhileStatementASTNode() {
-        super("WhileStatement");
+        super(Kind.WHILE_STATEMENT, "WhileStatement");
     }
 }
 
-class IntegerExpressionASTNode extends ASTNode {
+final class IntegerExpressionASTNode extends ASTNode {
     IntegerExpressionASTNode() {
-        super("IntExpr");
+        super(Kind.INTEGER_EXPRESSION, "IntExpr");
     }
 }
 
-class IntegerLiteralASTNode extends ASTNode {
+final class IntegerLiteralASTNode extends ASTNode {
+    final int value;
+
     IntegerLiteralASTNode(String value) {
-        super("Number: " + value);
+        super(Kind.INTEGER_LITERAL, "Number: " + value);
+        this.value = Integer.parseInt(value);
     }
 }
 
-class IntOpASTNode extends ASTNode {
+final class IntOpASTNode extends ASTNode {
     IntOpASTNode() {
-        super("IntOp: +");
+        super(Kind.INT_OP, "IntOp: +");
     }
 }
 
-class BooleanExpressionASTNode extends ASTNode {
+final class BooleanExpressionASTNode extends ASTNode {
     BooleanExpressionASTNode() {
-        super("BoolExpr");
+        super(Kind.BOOLEAN_EXPRESSION, "BoolExpr");
     }
 }
 
-class BooleanOperatorASTNode extends ASTNode {
+final class BooleanOperatorASTNode extends ASTNode {
+    // "==" or "!="
+    final String operator;
+
     BooleanOperatorASTNode(String value) {
-        super("BoolOp: " + value);
+        super(Kind.BOOLEAN_OPERATOR, "BoolOp: " + value);
+        this.operator = value;
     }
 }
 
-class BooleanValueASTNode extends ASTNode {
+final class BooleanValueASTNode extends ASTNode {
+    final boolean value;
+
     BooleanValueASTNode(String value) {
-        super("BoolVal: " + value);
+        super(Kind.BOOLEAN_VALUE, "BoolVal: " + value);
+        this.value = value.equals("true");
     }
 }
 
-class StringExpressionASTNode extends ASTNode {
+final class StringExpressionASTNode extends ASTNode {
     StringExpressionASTNode() {
-        super("StrgExpr");
+        super(Kind.STRING_EXPRESSION, "StrgExpr");
     }
 }
 
-class StringASTNode extends ASTNode {
+final class StringASTNode extends ASTNode {
+    final String value;
+
     StringASTNode(String value) {
-        super("String: " + value);
+        super(Kind.STRING, "String: " + value);
+        this.value = value;
     }
 }
 
-class IdentifierASTNode extends ASTNode {
+final class IdentifierASTNode extends ASTNode {
+    final String identifier;
+
     IdentifierASTNode(String value) {
-        super("ID: " + value);
+        super(Kind.IDENTIFIER, "ID: " + value);
+        this.identifier = value;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,95 @@
+// Operations over AST nodes, called through ASTNode.accept. Every method defaults to
+// visitNode, so a visitor only overrides the node classes it cares about.
+interface ASTVisitor<R> {
+    default R visitNode(ASTNode node) {
+        return null;
+    }
+
+    default R visitProgram(ProgramASTNode node) {
+        return visitNode(node);
+    }
+
+    default R visitEOF(EOFASTNode node) {
+        return visitNode(node);
+    }
+
+    default R visitBlock(BlockASTNode node) {
+        return visitNode(node);
+    }
+
+    default R visitLeftBrace(LeftBraceASTNode node) {
+        return visitNode(node);
+    }
+
+    default R visitRightBrace(RightBraceASTNode node) {
+        return visitNode(node);
+    }
+
+    default R visitLeftParenthesis(LeftParenthesisASTNode node) {
+        return visitNode(node);
+    }
+
+    default R visitRightParenthesis(RightParenthesisASTNode node) {
+        return visitNode(node);
+    }
+
+    default R visitVariableDeclaration(VariableDeclarationASTNode node) {
+        return visitNode(node);
+    }
+
+    default R visitVariableType(VariableTypeASTNode node) {
+        return visitNode(node);
+    }
+
+    default R visitAssignmentStatement(AssignmentStatementASTNode node) {
+        return visitNode(node);
+    }
+
+    default R visitIfStatement(IfStatementASTNode node) {
+        return visitNode(node);
+    }
+
+    default R visitPrintStatement(PrintStatementASTNode node) {
+        return visitNode(node);
+    }
+
+    default R visitWhileStatement(WhileStatementASTNode node) {
+        return visitNode(node);
+    }
+
+    default R visitIntegerExpression(IntegerExpressionASTNode node) {
+        return visitNode(node);
+    }
+
+    default R visitIntegerLiteral(IntegerLiteralASTNode node) {
+        return visitNode(node);
+    }
+
+    default R visitIntOp(IntOpASTNode node) {
+        return visitNode(node);
+    }
+
+    default R visitBooleanExpression(BooleanExpressionASTNode node) {
+        return visitNode(node);
+    }
+
+    default R visitBooleanOperator(BooleanOperatorASTNode node) {
+        return visitNode(node);
+    }
+
+    default R visitBooleanValue(BooleanValueASTNode node) {
+        return visitNode(node);
+    }
+
+    default R visitStringExpression(StringExpressionASTNode node) {
+        return visitNode(node);
+    }
+
+    default R visitString(StringASTNode node) {
+        return visitNode(node);
+    }
+
+    default R visitIdentifier(IdentifierASTNode node) {
+        return visitNode(node);
+    }
+}
@@ -0,0 +1,200 @@
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Arrays;
+
+// Bytes allocated by each phase and each program over a run, for --alloc, from the allocating
+// thread's own counter. A phase is counted from its start to the return of its phase call, as
+// in PhaseEvent; printing is counted as the PRINT and SYMBOL_TABLE phases. A program also
+// counts the work between its phases and the few objects the heap tracking itself makes.
+// Lexing with --parallel-lex allocates on other threads, which is not counted.
+//
+// With --alloc-retained, the heap is also collected at the start and end of every phase and
+// program, and the live heap read after each collection. A phase's retained size is how much
+// more is live when it ends than when it started, which is what it built and still holds, such
+// as LEX's TokenBuffer. A program's is the most it held live at any phase boundary. Memory
+// that a phase uses and drops before it ends is not seen, so this is not the peak within a
+// phase. The collections make a run much slower, but are outside the phases' windows. It
+// needs programs to run one at a time, since the heap is shared by every thread.
+//
+// Budgets are in bytes per token, for a phase or for whole programs, and are checked against
+// the totals of the whole run.
+public class AllocationMetrics {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+    private static final PhaseEvent.Phase[] PHASES = PhaseEvent.Phase.values();
+    // Index of whole programs in budgets
+    private static final int PROGRAM = PHASES.length;
+
+    private final boolean trackRetained;
+    // Bytes per token for each phase and, last, for whole programs; negative if there is none
+    private final double[] budgets = new double[PHASES.length + 1];
+
+    private final long[] runs = new long[PHASES.length];
+    private final long[] bytes = new long[PHASES.length];
+    private final long[] tokens = new long[PHASES.length];
+    private final long[] nodes = new long[PHASES.length];
+    private final long[] maxBytes = new long[PHASES.length];
+    private final long[] maxRetained = new long[PHASES.length];
+
+    private long programs;
+    private long programBytes;
+    private long programTokens;
+    private long maxProgramBytes;
+    private int maxProgram;
+    private long maxProgramRetained;
+
+    // The program running on each thread
+    private final ThreadLocal<Program> current = new ThreadLocal<>();
+
+    private static class Program {
+        final int number;
+        final long startBytes;
+        final long startLive;
+        long peakLive;
+        int tokens;
+
+        Program(int number, long startBytes, long startLive) {
+            this.number = number;
+            this.startBytes = startBytes;
+            this.startLive = startLive;
+            this.peakLive = startLive;
+        }
+    }
+
+    public AllocationMetrics(boolean trackRetained) {
+        this.trackRetained = trackRetained;
+        Arrays.fill(budgets, -1);
+    }
+
+    static long allocatedBytes() {
+        return THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    // Collects garbage and returns the heap still in use
+    private static long liveHeap() {
+        MEMORY.gc();
+        return MEMORY.getHeapMemoryUsage().getUsed();
+    }
+
+    // Sets a budget from "BYTES" for whole programs or "PHASE:BYTES" for one phase, in bytes
+    // per token. Throws IllegalArgumentException if spec is not one of those.
+    public void setBudget(String spec) {
+        int colon = spec.indexOf(':');
+        int index = PROGRAM;
+        if (colon >= 0) {
+            String phase = spec.substring(0, colon).toUpperCase();
+            try {
+                index = PhaseEvent.Phase.valueOf(phase).ordinal();
+            }
+            catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown phase '" + spec.substring(0, colon) + "' in allocation budget " + spec);
+            }
+        }
+        try {
+            budgets[index] = Double.parseDouble(spec.substring(colon + 1));
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Allocation budget " + spec + " is not a number of bytes per token");
+        }
+    }
+
+    public void startProgram(int number) {
+        long startLive = trackRetained ? liveHeap() : 0;
+        current.set(new Program(number, allocatedBytes(), startLive));
+    }
+
+    public void finishProgram() {
+        long allocated = allocatedBytes();
+        Program program = current.get();
+        current.remove();
+        allocated -= program.startBytes;
+
+        synchronized (this) {
+            programs++;
+            programBytes += allocated;
+            programTokens += program.tokens;
+            if (allocated > maxProgramBytes) {
+                maxProgramBytes = allocated;
+                maxProgram = program.number;
+            }
+            if (trackRetained) {
+                maxProgramRetained = Math.max(maxProgramRetained, program.peakLive - program.startLive);
+            }
+        }
+    }
+
+    // Called as a phase starts; returns the live heap, or 0 if retained sizes are not tracked
+    long startPhase() {
+        return trackRetained ? liveHeap() : 0;
+    }
+
+    // Adds a finished phase that allocated the given bytes. startLive is what startPhase returned.
+    void record(PhaseEvent.Phase phase, long allocated, int tokenCount, int nodeCount, long startLive) {
+        // The program is this thread's own, and the heap is collected before taking the lock
+        Program program = current.get();
+        if (program != null) {
+            program.tokens = Math.max(program.tokens, tokenCount);
+        }
+        long live = 0;
+        if (trackRetained) {
+            live = liveHeap();
+            if (program != null) {
+                program.peakLive = Math.max(program.peakLive, live);
+            }
+        }
+
+        int i = phase.ordinal();
+        synchronized (this) {
+            runs[i]++;
+            bytes[i] += allocated;
+            tokens[i] += tokenCount;
+            nodes[i] += nodeCount;
+            maxBytes[i] = Math.max(maxBytes[i], allocated);
+            if (trackRetained) {
+                maxRetained[i] = Math.max(maxRetained[i], live - startLive);
+            }
+        }
+    }
+
+    // Prints the report, then an error for each budget exceeded. Returns false if any was.
+    public synchronized boolean report(PrintStream out) {
+        out.println(String.format("%-14s %10s %12s %12s %12s %14s %14s", "Phase", "Runs", "Total MB", "Bytes/token",
+                "Bytes/node", "Max/run KB", "Retained KB"));
+        for (PhaseEvent.Phase phase : PHASES) {
+            int i = phase.ordinal();
+            if (runs[i] > 0) {
+                String perNode = nodes[i] > 0 ? String.format("%.1f", perUnit(bytes[i], nodes[i])) : "-";
+                String retained = trackRetained ? String.format("%.1f", maxRetained[i] / 1024.0) : "-";
+                out.println(String.format("%-14s %10d %12.3f %12.1f %12s %14.1f %14s", phase, runs[i], bytes[i] / 1e6,
+                        perUnit(bytes[i], tokens[i]), perNode, maxBytes[i] / 1024.0, retained));
+            }
+        }
+        if (programs > 0) {
+            String retained = trackRetained ? String.format("%.1f", maxProgramRetained / 1024.0) : "-";
+            out.println(String.format("%-14s %10d %12.3f %12.1f %12s %14.1f %14s", "PROGRAM", programs, programBytes / 1e6,
+                    perUnit(programBytes, programTokens), "-", maxProgramBytes / 1024.0, retained));
+            out.println("Most allocated by one program: " + maxProgramBytes + " bytes, program " + maxProgram);
+        }
+
+        boolean withinBudget = true;
+        for (int i = 0; i < budgets.length; i++) {
+            if (budgets[i] < 0) {
+                continue;
+            }
+            String name = i == PROGRAM ? "programs" : PHASES[i].name();
+            double actual = i == PROGRAM ? perUnit(programBytes, programTokens) : perUnit(bytes[i], tokens[i]);
+            if (actual > budgets[i]) {
+                out.println(String.format("Error: %s allocated %.1f bytes per token, over the budget of %.1f", name, actual,
+                        budgets[i]));
+                withinBudget = false;
+            }
+        }
+        return withinBudget;
+    }
+
+    private static double perUnit(long total, long units) {
+        return units > 0 ? (double) total / units : 0;
+    }
+}
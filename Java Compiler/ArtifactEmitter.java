@@ -0,0 +1,49 @@
+import java.io.Flushable;
+import java.io.OutputStream;
+import java.util.List;
+
+// Writes a program's artifacts in a machine-readable format, as Main --emit=binary or
+// --emit=json selects. Calls for one program come in this order: beginProgram, tokens, the LEX
+// diagnostics and, if there were no lex errors, the PARSE diagnostics, then (if the program
+// parsed) cst (if one was built), ast, symbolTable and the SEMANTIC diagnostics, and finally
+// endProgram. Everything is written as it is visited; nothing is collected first.
+public interface ArtifactEmitter extends Flushable {
+    enum Phase {
+        LEX,
+        PARSE,
+        SEMANTIC
+    }
+
+    void beginProgram(int programCount);
+
+    void tokens(TokenBuffer tokens);
+
+    void cst(Node root);
+
+    void ast(ASTNode root);
+
+    void ast(ASTArena arena);
+
+    void symbolTable(SymbolTable symbolTable);
+
+    void diagnostics(Phase phase, List<String> errors, List<String> warnings);
+
+    void endProgram();
+
+    @Override
+    void flush();
+
+    // The emitter for a format name, or null for "text", the human-readable output
+    static ArtifactEmitter forFormat(String format, OutputStream out) {
+        switch (format) {
+            case "text":
+                return null;
+            case "binary":
+                return new BinaryEmitter(out);
+            case "json":
+                return new JsonEmitter(new OutputSink(out));
+            default:
+                throw new IllegalArgumentException("Unknown output format: " + format);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+// The compact binary format. Every record starts with a one-byte tag. Numbers are unsigned
+// LEB128 varints, strings are a varint UTF-8 byte length followed by the bytes, and every list
+// is preceded by its element count, so a reader never has to scan for a terminator.
+//
+//   'P' program count                         begins a program
+//   'T' count, then per token: type ordinal, start, length, line, column, value
+//   'C' tree and 'A' tree, where tree is: kind ordinal, label, child count, children
+//   'S' count, then per entry: name, ValueType ordinal, scope, line
+//   'D' Phase ordinal, error count, errors, warning count, warnings
+//   'E'                                       ends the program
+//
+// Kinds are ordinals of Node.Kind for the CST and ASTNode.Kind for the AST, types of TokenType.
+public class BinaryEmitter implements ArtifactEmitter {
+    static final int PROGRAM = 'P';
+    static final int TOKENS = 'T';
+    static final int CST = 'C';
+    static final int AST = 'A';
+    static final int SYMBOL_TABLE = 'S';
+    static final int DIAGNOSTICS = 'D';
+    static final int END = 'E';
+
+    private final OutputStream out;
+
+    public BinaryEmitter(OutputStream out) {
+        this.out = out instanceof BufferedOutputStream ? out : new BufferedOutputStream(out, 1 << 16);
+    }
+
+    @Override
+    public void beginProgram(int programCount) {
+        write(PROGRAM);
+        writeVarint(programCount);
+    }
+
+    @Override
+    public void tokens(TokenBuffer tokens) {
+        write(TOKENS);
+        writeVarint(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            writeVarint(tokens.type(i).ordinal());
+            writeVarint(tokens.start(i));
+            writeVarint(tokens.length(i));
+            writeVarint(tokens.line(i));
+            writeVarint(tokens.column(i));
+            writeString(tokens.value(i));
+        }
+    }
+
+    @Override
+    public void cst(Node root) {
+        write(CST);
+        writeTree(root);
+    }
+
+    private void writeTree(Node node) {
+        writeVarint(node.kind.ordinal());
+        writeString(node.name);
+        writeVarint(node.children.size());
+        for (Node child : node.children) {
+            writeTree(child);
+        }
+    }
+
+    @Override
+    public void ast(ASTNode root) {
+        write(AST);
+        writeTree(root);
+    }
+
+    private void writeTree(ASTNode node) {
+        writeVarint(node.kind.ordinal());
+        writeString(node.name);
+        writeVarint(node.children.size());
+        for (ASTNode child : node.children) {
+            writeTree(child);
+        }
+    }
+
+    @Override
+    public void ast(ASTArena arena) {
+        // Every 'A' record is followed by a tree; an arena from ASTArenaBuilder always has a root
+        if (arena.root() < 0) {
+            throw new IllegalArgumentException("The arena is empty; an AST record needs a root");
+        }
+        write(AST);
+        writeTree(arena, arena.root());
+    }
+
+    private void writeTree(ASTArena arena, int node) {
+        writeVarint(arena.kind(node).ordinal());
+        writeString(arena.label(node));
+        int children = 0;
+        for (int child = arena.firstChild(node); child >= 0; child = arena.nextSibling(child)) {
+            children++;
+        }
+        writeVarint(children);
+        for (int child = arena.firstChild(node); child >= 0; child = arena.nextSibling(child)) {
+            writeTree(arena, child);
+        }
+    }
+
+    @Override
+    public void symbolTable(SymbolTable symbolTable) {
+        List<SymbolTableEntry> entries = symbolTable.getEntries();
+        write(SYMBOL_TABLE);
+        writeVarint(entries.size());
+        for (SymbolTableEntry entry : entries) {
+            writeString(entry.getName());
+            writeVarint(entry.getValueType().ordinal());
+            writeVarint(entry.getScope());
+            writeVarint(entry.getLine());
+        }
+    }
+
+    @Override
+    public void diagnostics(Phase phase, List<String> errors, List<String> warnings) {
+        write(DIAGNOSTICS);
+        writeVarint(phase.ordinal());
+        writeStrings(errors);
+        writeStrings(warnings);
+    }
+
+    @Override
+    public void endProgram() {
+        write(END);
+    }
+
+    private void writeStrings(List<String> strings) {
+        writeVarint(strings.size());
+        for (String string : strings) {
+            writeString(string);
+        }
+    }
+
+    // Encodes straight into the stream; the UTF-8 length is counted in a first pass
+    private void writeString(String string) {
+        int length = string.length();
+        int bytes = 0;
+        for (int i = 0; i < length; i++) {
+            char c = string.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            }
+            else if (c < 0x800) {
+                bytes += 2;
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(string.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            }
+            else {
+                bytes += 3;
+            }
+        }
+        writeVarint(bytes);
+
+        for (int i = 0; i < length; i++) {
+            char c = string.charAt(i);
+            if (c < 0x80) {
+                write(c);
+            }
+            else if (c < 0x800) {
+                write(0xC0 | (c >> 6));
+                write(0x80 | (c & 0x3F));
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(string.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, string.charAt(++i));
+                write(0xF0 | (codePoint >> 18));
+                write(0x80 | ((codePoint >> 12) & 0x3F));
+                write(0x80 | ((codePoint >> 6) & 0x3F));
+                write(0x80 | (codePoint & 0x3F));
+            }
+            else {
+                // A lone surrogate is written as is, as in modified UTF-8
+                write(0xE0 | (c >> 12));
+                write(0x80 | ((c >> 6) & 0x3F));
+                write(0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private void writeVarint(int value) {
+        while ((value & ~0x7F) != 0) {
+            write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        write(value);
+    }
+
+    private void write(int b) {
+        try {
+            out.write(b);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void flush() {
+        try {
+            out.flush();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
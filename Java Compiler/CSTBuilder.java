@@ -1,13 +1,47 @@
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Arrays;
 import java.util.Scanner;
 
-abstract class Node {
-    String name;
+// The CST node classes are a closed set: every subclass is final and declared in this file, and
+// passes dispatch on kind, as with ASTNode
+abstract sealed class Node {
+    enum Kind {
+        PROGRAM,
+        EOF,
+        BLOCK,
+        LEFT_BRACE,
+        RIGHT_BRACE,
+        LEFT_PARENTHESIS,
+        RIGHT_PARENTHESIS,
+        STATEMENT_LIST,
+        STATEMENT,
+        VARIABLE_DECLARATION,
+        VARIABLE_TYPE,
+        ASSIGNMENT_STATEMENT,
+        IF_STATEMENT,
+        PRINT_STATEMENT,
+        WHILE_STATEMENT,
+        EXPRESSION,
+        INTEGER_EXPRESSION,
+        INTEGER_LITERAL,
+        INT_OP,
+        BOOLEAN_EXPRESSION,
+        BOOLEAN_OPERATOR,
+        BOOLEAN_VALUE,
+        STRING_EXPRESSION,
+        STRING,
+        IDENTIFIER
+    }
+
+    final Kind kind;
+    final String name;
+    // Unmodifiable once the tree is sealed
     List<Node> children = new ArrayList<>();
 
-    Node(String name) {
+    Node(Kind kind, String name) {
+        this.kind = kind;
         this.name = name;
     }
 
@@ -15,185 +49,306 @@ abstract class Node {
         children.add(node);
     }
 
+    // Makes this node's and every descendant's children lists unmodifiable, so the tree can no
+    // longer change; addChild then throws UnsupportedOperationException
+    void seal() {
+        children = List.copyOf(children);
+        for (Node child : children) {
+            child.seal();
+        }
+    }
+
     void print(String indent) {
-        System.out.println(indent + name);
+        print(System.out, indent);
+    }
+
+    void print(PrintStream out, String indent) {
+        out.println(indent + name);
         for (Node child : children) {
-            child.print(indent + "  ");
+            child.print(out, indent + "  ");
+        }
+    }
+
+    void print(OutputSink out, int depth) {
+        out.indent(depth).println(name);
+        for (Node child : children) {
+            child.print(out, depth + 1);
+        }
+    }
+
+    // This node and every node under it
+    int countNodes() {
+        int count = 1;
+        for (Node child : children) {
+            count += child.countNodes();
+        }
+        return count;
+    }
+
+    final <R> R accept(CSTVisitor<R> visitor) {
+        switch (kind) {
+            case PROGRAM:
+                return visitor.visitProgram((ProgramNode) this);
+            case EOF:
+                return visitor.visitEOF((EOFNode) this);
+            case BLOCK:
+                return visitor.visitBlock((BlockNode) this);
+            case LEFT_BRACE:
+                return visitor.visitLeftBrace((LeftBraceNode) this);
+            case RIGHT_BRACE:
+                return visitor.visitRightBrace((RightBraceNode) this);
+            case LEFT_PARENTHESIS:
+                return visitor.visitLeftParenthesis((LeftParenthesisNode) this);
+            case RIGHT_PARENTHESIS:
+                return visitor.visitRightParenthesis((RightParenthesisNode) this);
+            case STATEMENT_LIST:
+                return visitor.visitStatementList((StatementListNode) this);
+            case STATEMENT:
+                return visitor.visitStatement((StatementNode) this);
+            case VARIABLE_DECLARATION:
+                return visitor.visitVariableDeclaration((VariableDeclarationNode) this);
+            case VARIABLE_TYPE:
+                return visitor.visitVariableType((VariableTypeNode) this);
+            case ASSIGNMENT_STATEMENT:
+                return visitor.visitAssignmentStatement((AssignmentStatementNode) this);
+            case IF_STATEMENT:
+                return visitor.visitIfStatement((IfStatementNode) this);
+            case PRINT_STATEMENT:
+                return visitor.visitPrintStatement((PrintStatementNode) this);
+            case WHILE_STATEMENT:
+                return visitor.visitWhileStatement((WhileStatementNode) this);
+            case EXPRESSION:
+                return visitor.visitExpression((ExpressionNode) this);
+            case INTEGER_EXPRESSION:
+                return visitor.visitIntegerExpression((IntegerExpressionNode) this);
+            case INTEGER_LITERAL:
+                return visitor.visitIntegerLiteral((IntegerLiteralNode) this);
+            case INT_OP:
+                return visitor.visitIntOp((IntOpNode) this);
+            case BOOLEAN_EXPRESSION:
+                return visitor.visitBooleanExpression((BooleanExpressionNode) this);
+            case BOOLEAN_OPERATOR:
+                return visitor.visitBooleanOperator((BooleanOperatorNode) this);
+            case BOOLEAN_VALUE:
+                return visitor.visitBooleanValue((BooleanValueNode) this);
+            case STRING_EXPRESSION:
+                return visitor.visitStringExpression((StringExpressionNode) this);
+            case STRING:
+                return visitor.visitString((StringNode) this);
+            case IDENTIFIER:
+                return visitor.visitIdentifier((IdentifierNode) this);
+            default:
+                throw new IllegalStateException("Unknown CST node kind " + kind);
         }
     }
 }
 
-class ProgramNode extends Node {
+final class ProgramNode extends Node {
     ProgramNode() {
-        super("Program");
+        super(Kind.PROGRAM, "Program");
     }
 }
 
-class EOFNode extends Node {
+final class EOFNode extends Node {
     EOFNode() {
-        super("$");
+        super(Kind.EOF, "$");
     }
 }
 
-class BlockNode extends Node {
+final class BlockNode extends Node {
     BlockNode() {
-        super("Block");
+        super(Kind.BLOCK, "Block");
     }
 }
 
-class LeftBraceNode extends Node {
+final class LeftBraceNode extends Node {
     LeftBraceNode() {
-        super("{");
+        super(Kind.LEFT_BRACE, "{");
     }
 }
 
-class RightBraceNode extends Node {
+final class RightBraceNode extends Node {
     RightBraceNode() {
-        super("}");
+        super(Kind.RIGHT_BRACE, "}");
     }
 }
 
-class LeftParenthesisNode extends Node {
+final class LeftParenthesisNode extends Node {
     LeftParenthesisNode() {
-        super("(");
+        super(Kind.LEFT_PARENTHESIS, "(");
     }
 }
 
-class RightParenthesisNode extends Node {
+final class RightParenthesisNode extends Node {
     RightParenthesisNode() {
-        super(")");
+        super(Kind.RIGHT_PARENTHESIS, ")");
     }
 }
 
-class StatementListNode extends Node {
+final class StatementListNode extends Node {
     StatementListNode() {
-        super("StatementList");
+        super(Kind.STATEMENT_LIST, "StatementList");
     }
 }
 
-class StatementNode extends Node {
+final class StatementNode extends Node {
     StatementNode() {
-        super("Statement");
+        super(Kind.STATEMENT, "Statement");
     }
 }
 
-class VariableDeclarationNode extends Node {
+final class VariableDeclarationNode extends Node {
     VariableDeclarationNode() {
-        super("VarDeclaration");
+        super(Kind.VARIABLE_DECLARATION, "VarDeclaration");
     }
 }
 
-class VariableTypeNode extends Node {
+final class VariableTypeNode extends Node {
+    final ValueType type;
+
     VariableTypeNode(String value) {
-        super("Type: " + value);
+        super(Kind.VARIABLE_TYPE, "Type: " + value);
+        this.type = ValueType.of(value);
     }
 }
 
-class AssignmentStatementNode extends Node {
+final class AssignmentStatementNode extends Node {
     AssignmentStatementNode() {
-        super("AssignStatement");
+        super(Kind.ASSIGNMENT_STATEMENT, "AssignStatement");
     }
 }
 
-class IfStatementNode extends Node {
+final class IfStatementNode extends Node {
     IfStatementNode() {
-        super("IfStatement");
+        super(Kind.IF_STATEMENT, "IfStatement");
     }
 }
 
-class PrintStatementNode extends Node {
+final class PrintStatementNode extends Node {
     PrintStatementNode() {
-        super("PrintStatement");
+        super(Kind.PRINT_STATEMENT, "PrintStatement");
     }
 }
 
-class WhileStatementNode extends Node {
+final class WhileStatementNode extends Node {
     WhileStatementNode() {
-        super("WhileStatement");
+        super(Kind.WHILE_STATEMENT, "WhileStatement");
     }
 }
 
-class ExpressionNode extends Node {
+final class ExpressionNode extends Node {
     ExpressionNode() {
-        super("Expr");
+        super(Kind.EXPRESSION, "Expr");
     }
 }
 
-class IntegerExpressionNode extends Node {
+final class IntegerExpressionNode extends Node {
     IntegerExpressionNode() {
-        super("IntExpr");
+        super(Kind.INTEGER_EXPRESSION, "IntExpr");
     }
 }
 
-class IntegerLiteralNode extends Node {
+final class IntegerLiteralNode extends Node {
+    final int value;
+
     IntegerLiteralNode(String value) {
-        super("Number: " + value);
+        super(Kind.INTEGER_LITERAL, "Number: " + value);
+        this.value = Integer.parseInt(value);
     }
 }
 
-class IntOpNode extends Node {
+final class IntOpNode extends Node {
     IntOpNode() {
-        super("IntOp: +");
+        super(Kind.INT_OP, "IntOp: +");
     }
 }
 
-class BooleanExpressionNode extends Node {
+final class BooleanExpressionNode extends Node {
     BooleanExpressionNode() {
-        super("BoolExpr");
+        super(Kind.BOOLEAN_EXPRESSION, "BoolExpr");
     }
 }
 
-class BooleanOperatorNode extends Node {
+final class BooleanOperatorNode extends Node {
+    // "==" or "!="
+    final String operator;
+
     BooleanOperatorNode(String value) {
-        super("BoolOp: " + value);
+        super(Kind.BOOLEAN_OPERATOR, "BoolOp: " + value);
+        this.operator = value;
     }
 }
 
-class BooleanValueNode extends Node {
+final class BooleanValueNode extends Node {
+    final boolean value;
+
     BooleanValueNode(String value) {
-        super("BoolVal: " + value);
+        super(Kind.BOOLEAN_VALUE, "BoolVal: " + value);
+        this.value = value.equals("true");
     }
 }
 
-class StringExpressionNode extends Node {
+final class StringExpressionNode extends Node {
     StringExpressionNode() {
-        super("StrgExpr");
+        super(Kind.STRING_EXPRESSION, "StrgExpr");
     }
 }
 
-class StringNode extends Node {
+final class StringNode extends Node {
+    final String value;
+
     StringNode(String value) {
-        super("String: " + value);
+        super(Kind.STRING, "String: " + value);
+        this.value = value;
     }
 }
 
-class IdentifierNode extends Node {
+final class IdentifierNode extends Node {
+    final String identifier;
+
     IdentifierNode(String value) {
-        super("ID: " + value);
+        super(Kind.IDENTIFIER, "ID: " + value);
+        this.identifier = value;
     }
 }
 
 public class CSTBuilder {
-    private List<Token> tokens;
+    private TokenStream tokens;
     private int position = 0;
     private List<String> errors = new ArrayList<>();
 
     public CSTBuilder(List<Token> tokens) {
+        this(new ListTokenStream(tokens));
+    }
+
+    public CSTBuilder(TokenStream tokens) {
         this.tokens = tokens;
     }
 
     private Token currentToken() {
-        return position < tokens.size() ? tokens.get(position) : null;
+        return tokens.peek();
+    }
+
+    private TokenType currentType() {
+        return tokens.peekType();
     }
 
     private Token nextToken() {
-        return position < tokens.size() ? tokens.get(position++) : null;
+        Token token = tokens.nextToken();
+        if (token != null) {
+            position++;
+        }
+        return token;
     }
 
     private void expectToken(TokenType expectedType) {
-        Token token = nextToken();
-        if (token == null || token.getType() != expectedType) {
-            error("Expected '" + expectedType + "' but got '" + (token != null ? token.getType() : "EOF") + "'");
+        TokenType type = currentType();
+        if (type != null) {
+            tokens.skip();
+            position++;
+        }
+        if (type != expectedType) {
+            error("Expected '" + expectedType + "' but got '" + (type != null ? type : "EOF") + "'");
         }
     }
 
@@ -221,42 +376,42 @@ public class CSTBuilder {
 
     private StatementListNode parseStatementList() {
         StatementListNode statementListNode = new StatementListNode();
-        while (currentToken() != null && currentToken().getType() != TokenType.RIGHT_BRACE) {
+        while (currentType() != null && currentType() != TokenType.RIGHT_BRACE) {
             statementListNode.addChild(parseStatement());
         }
         return statementListNode;
     }
 
     private StatementNode parseStatement() {
-        Token token = currentToken();
+        TokenType type = currentType();
         StatementNode statementNode = new StatementNode();
 
-        if (token.getType() == TokenType.INT) {
+        if (type == TokenType.INT) {
             statementNode.addChild(parseVariableDeclaration());
         } 
-        else if (token.getType() == TokenType.STRING) {
+        else if (type == TokenType.STRING) {
             statementNode.addChild(parseVariableDeclaration());
         }
-        else if (token.getType() == TokenType.BOOLEAN) {
+        else if (type == TokenType.BOOLEAN) {
             statementNode.addChild(parseVariableDeclaration());
         }
-        else if (token.getType() == TokenType.ID) {
+        else if (type == TokenType.ID) {
             statementNode.addChild(parseAssignmentStatement());
         } 
-        else if (token.getType() == TokenType.IF) {
+        else if (type == TokenType.IF) {
             statementNode.addChild(parseIfStatement());
         } 
-        else if (token.getType() == TokenType.PRINT) {
+        else if (type == TokenType.PRINT) {
             statementNode.addChild(parsePrintStatement());
         } 
-        else if (token.getType() == TokenType.WHILE) {
+        else if (type == TokenType.WHILE) {
             statementNode.addChild(parseWhileStatement());
         }
-        else if (token.getType() == TokenType.LEFT_BRACE) {
+        else if (type == TokenType.LEFT_BRACE) {
             statementNode.addChild(parseBlock());
         } 
         else {
-            error("Unexpected token: " + token.getType());
+            error("Unexpected token: " + type);
         }
         return statementNode;
     }
@@ -0,0 +1,107 @@
+// Operations over CST nodes, called through Node.accept. Every method defaults to visitNode,
+// so a visitor only overrides the node classes it cares about.
+interface CSTVisitor<R> {
+    default R visitNode(Node node) {
+        return null;
+    }
+
+    default R visitProgram(ProgramNode node) {
+        return visitNode(node);
+    }
+
+    default R visitEOF(EOFNode node) {
+        return visitNode(node);
+    }
+
+    default R visitBlock(BlockNode node) {
+        return visitNode(node);
+    }
+
+    default R visitLeftBrace(LeftBraceNode node) {
+        return visitNode(node);
+    }
+
+    default R visitRightBrace(RightBraceNode node) {
+        return visitNode(node);
+    }
+
+    default R visitLeftParenthesis(LeftParenthesisNode node) {
+        return visitNode(node);
+    }
+
+    default R visitRightParenthesis(RightParenthesisNode node) {
+        return visitNode(node);
+    }
+
+    default R visitStatementList(StatementListNode node) {
+        return visitNode(node);
+    }
+
+    default R visitStatement(StatementNode node) {
+        return visitNode(node);
+    }
+
+    default R visitVariableDeclaration(VariableDeclarationNode node) {
+        return visitNode(node);
+    }
+
+    default R visitVariableType(VariableTypeNode node) {
+        return visitNode(node);
+    }
+
+    default R visitAssignmentStatement(AssignmentStatementNode node) {
+        return visitNode(node);
+    }
+
+    default R visitIfStatement(IfStatementNode node) {
+        return visitNode(node);
+    }
+
+    default R visitPrintStatement(PrintStatementNode node) {
+        return visitNode(node);
+    }
+
+    default R visitWhileStatement(WhileStatementNode node) {
+        return visitNode(node);
+    }
+
+    default R visitExpression(ExpressionNode node) {
+        return visitNode(node);
+    }
+
+    default R visitIntegerExpression(IntegerExpressionNode node) {
+        return visitNode(node);
+    }
+
+    default R visitIntegerLiteral(IntegerLiteralNode node) {
+        return visitNode(node);
+    }
+
+    default R visitIntOp(IntOpNode node) {
+        return visitNode(node);
+    }
+
+    default R visitBooleanExpression(BooleanExpressionNode node) {
+        return visitNode(node);
+    }
+
+    default R visitBooleanOperator(BooleanOperatorNode node) {
+        return visitNode(node);
+    }
+
+    default R visitBooleanValue(BooleanValueNode node) {
+        return visitNode(node);
+    }
+
+    default R visitStringExpression(StringExpressionNode node) {
+        return visitNode(node);
+    }
+
+    default R visitString(StringNode node) {
+        return visitNode(node);
+    }
+
+    default R visitIdentifier(IdentifierNode node) {
+        return visitNode(node);
+    }
+}
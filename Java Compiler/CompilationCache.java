@@ -0,0 +1,222 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// A directory of compiled programs, one file per entry, named by the SHA-256 of the compiler
+// version, the output format and the program's source. An entry holds the program's emitted
+// artifacts (tokens, trees, symbol table and diagnostics) without the leading program number,
+// so the same program hits wherever it appears in a batch.
+//
+// The directory is kept under maxBytes by evicting the least recently used entries. Use is
+// tracked in memory and stored in each file's modification time, so the order survives
+// restarts. Identical programs compiled at the same time wait for the first one instead of
+// compiling again.
+public class CompilationCache {
+    static final long DEFAULT_MAX_BYTES = 256L << 20;
+    private static final String SUFFIX = ".bin";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Path directory;
+    private final long maxBytes;
+    // Entry sizes by key, least recently used first
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private final Map<String, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+
+    public CompilationCache(Path directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory);
+        load();
+    }
+
+    // Indexes the entries already on disk, oldest use first
+    private void load() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        List<FileTime> times = new ArrayList<>();
+        List<Long> sizes = new ArrayList<>();
+        for (Path file : files) {
+            times.add(Files.getLastModifiedTime(file));
+            sizes.add(Files.size(file));
+        }
+        Integer[] order = new Integer[files.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> times.get(a).compareTo(times.get(b)));
+
+        synchronized (entries) {
+            for (int i : order) {
+                String name = files.get(i).getFileName().toString();
+                entries.put(name.substring(0, name.length() - SUFFIX.length()), sizes.get(i));
+                totalBytes += sizes.get(i);
+            }
+            evict();
+        }
+    }
+
+    // The key for source compiled to the given output format
+    public static String key(String format, CharSequence source) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        digest.update(("java-compiler " + Compiler.VERSION + " " + format + "\n").getBytes(StandardCharsets.UTF_8));
+
+        // The source's chars, two bytes each, a block at a time
+        byte[] block = new byte[8192];
+        int length = source.length();
+        for (int start = 0; start < length; start += block.length / 2) {
+            int end = Math.min(length, start + block.length / 2);
+            int pos = 0;
+            for (int i = start; i < end; i++) {
+                char c = source.charAt(i);
+                block[pos++] = (byte) (c >> 8);
+                block[pos++] = (byte) c;
+            }
+            digest.update(block, 0, pos);
+        }
+
+        byte[] hash = digest.digest();
+        char[] hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[i * 2] = HEX[(hash[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX[hash[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    // The entry for key, running compile and storing what it returns if there is none
+    public byte[] get(String key, Supplier<byte[]> compile) {
+        CompletableFuture<byte[]> mine = new CompletableFuture<>();
+        CompletableFuture<byte[]> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            return running.join();
+        }
+
+        try {
+            byte[] entry = read(key);
+            if (entry == null) {
+                entry = compile.get();
+                write(key, entry);
+            }
+            mine.complete(entry);
+            return entry;
+        }
+        catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        }
+        finally {
+            inFlight.remove(key);
+        }
+    }
+
+    private Path file(String key) {
+        return directory.resolve(key + SUFFIX);
+    }
+
+    private byte[] read(String key) {
+        synchronized (entries) {
+            // get() also marks the entry as just used
+            if (entries.get(key) == null) {
+                return null;
+            }
+        }
+        Path file = file(key);
+        try {
+            byte[] entry = Files.readAllBytes(file);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return entry;
+        }
+        catch (NoSuchFileException e) {
+            // Removed by another process sharing the directory
+            forget(key);
+            return null;
+        }
+        catch (IOException e) {
+            System.err.println("Warning: Cannot read cache entry " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void write(String key, byte[] entry) {
+        Path file = file(key);
+        try {
+            // Written under a temporary name and renamed, so no reader sees half an entry
+            Path temporary = Files.createTempFile(directory, key, ".tmp");
+            try {
+                Files.write(temporary, entry);
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            finally {
+                Files.deleteIfExists(temporary);
+            }
+        }
+        catch (IOException e) {
+            System.err.println("Warning: Cannot write cache entry " + file + ": " + e.getMessage());
+            return;
+        }
+
+        synchronized (entries) {
+            Long previous = entries.put(key, (long) entry.length);
+            totalBytes += entry.length - (previous != null ? previous : 0);
+            evict();
+        }
+    }
+
+    private void forget(String key) {
+        synchronized (entries) {
+            Long size = entries.remove(key);
+            if (size != null) {
+                totalBytes -= size;
+            }
+        }
+    }
+
+    // Called holding the entries lock. The entry just used is never evicted.
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && entries.size() > 1) {
+            Map.Entry<String, Long> entry = eldest.next();
+            try {
+                Files.deleteIfExists(file(entry.getKey()));
+            }
+            catch (IOException e) {
+                System.err.println("Warning: Cannot evict cache entry " + entry.getKey() + ": " + e.getMessage());
+            }
+            totalBytes -= entry.getValue();
+            eldest.remove();
+        }
+    }
+
+    public long getTotalBytes() {
+        synchronized (entries) {
+            return totalBytes;
+        }
+    }
+}
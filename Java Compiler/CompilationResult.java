@@ -0,0 +1,167 @@
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+// Everything Compiler.compile produced for one program. The lists cannot be modified, and the
+// trees are not changed after they are built: the token buffer and the node trees are sealed
+// when the result is made, and an ASTArena is trimmed by its builder, so trying to change any of
+// them throws. Each phase only runs if the one before it had no errors; the artifacts of phases
+// that did not run are null.
+public final class CompilationResult {
+    private final TokenBuffer tokens;
+    private final List<Token> tokenList;
+    private final List<String> lexErrors;
+    private final List<String> lexWarnings;
+    private final boolean parsed;
+    private final String parseError;
+    private final ProgramNode cst;
+    private final ProgramASTNode ast;
+    private final ASTArena astArena;
+    private final List<String> semanticErrors;
+    private final List<String> semanticWarnings;
+    private final SymbolTable symbolTable;
+
+    // Stopped by lex errors
+    CompilationResult(TokenBuffer tokens, List<String> lexErrors, List<String> lexWarnings) {
+        this(tokens, lexErrors, lexWarnings, false, null, null, null, null, null, null, null);
+    }
+
+    // Stopped by a parse error
+    CompilationResult(TokenBuffer tokens, List<String> lexErrors, List<String> lexWarnings, String parseError) {
+        this(tokens, lexErrors, lexWarnings, true, parseError, null, null, null, null, null, null);
+    }
+
+    CompilationResult(TokenBuffer tokens, List<String> lexErrors, List<String> lexWarnings, ProgramNode cst,
+                      ProgramASTNode ast, ASTArena astArena, List<String> semanticErrors,
+                      List<String> semanticWarnings, SymbolTable symbolTable) {
+        this(tokens, lexErrors, lexWarnings, true, null, cst, ast, astArena, semanticErrors, semanticWarnings, symbolTable);
+    }
+
+    private CompilationResult(TokenBuffer tokens, List<String> lexErrors, List<String> lexWarnings, boolean parsed,
+                              String parseError, ProgramNode cst, ProgramASTNode ast, ASTArena astArena,
+                              List<String> semanticErrors, List<String> semanticWarnings, SymbolTable symbolTable) {
+        tokens.seal();
+        if (cst != null) {
+            cst.seal();
+        }
+        if (ast != null) {
+            ast.seal();
+        }
+        this.tokens = tokens;
+        this.tokenList = new TokenList(tokens);
+        this.lexErrors = List.copyOf(lexErrors);
+        this.lexWarnings = List.copyOf(lexWarnings);
+        this.parsed = parsed;
+        this.parseError = parseError;
+        this.cst = cst;
+        this.ast = ast;
+        this.astArena = astArena;
+        this.semanticErrors = semanticErrors == null ? null : List.copyOf(semanticErrors);
+        this.semanticWarnings = semanticWarnings == null ? null : List.copyOf(semanticWarnings);
+        this.symbolTable = symbolTable;
+    }
+
+    // Tokens are made from the token buffer as they are asked for
+    private static class TokenList extends AbstractList<Token> implements RandomAccess {
+        private final TokenBuffer tokens;
+
+        TokenList(TokenBuffer tokens) {
+            this.tokens = tokens;
+        }
+
+        @Override
+        public Token get(int index) {
+            if (index < 0 || index >= tokens.size()) {
+                throw new IndexOutOfBoundsException("Token index " + index + " out of range 0.." + tokens.size());
+            }
+            return tokens.get(index);
+        }
+
+        @Override
+        public int size() {
+            return tokens.size();
+        }
+    }
+
+    public List<Token> getTokens() {
+        return tokenList;
+    }
+
+    public List<String> getLexErrors() {
+        return lexErrors;
+    }
+
+    public List<String> getLexWarnings() {
+        return lexWarnings;
+    }
+
+    // True if the parser ran, whether or not it succeeded
+    public boolean isParsed() {
+        return parsed;
+    }
+
+    public String getParseError() {
+        return parseError;
+    }
+
+    public ProgramNode getCst() {
+        return cst;
+    }
+
+    // The AST as ASTNode objects, or null if it was built into an ASTArena
+    public ProgramASTNode getAst() {
+        return ast;
+    }
+
+    public ASTArena getAstArena() {
+        return astArena;
+    }
+
+    public List<String> getSemanticErrors() {
+        return semanticErrors;
+    }
+
+    public List<String> getSemanticWarnings() {
+        return semanticWarnings;
+    }
+
+    // Symbol table entries in declaration order, or null if the semantic checks did not run
+    public List<SymbolTableEntry> getSymbols() {
+        return symbolTable == null ? null : symbolTable.getEntries();
+    }
+
+    public boolean hasErrors() {
+        return !lexErrors.isEmpty() || parseError != null || (semanticErrors != null && !semanticErrors.isEmpty());
+    }
+
+    // Hands every artifact to emitter, in the order ArtifactEmitter documents
+    public void emit(ArtifactEmitter emitter, int programCount) {
+        emitter.beginProgram(programCount);
+        emitArtifacts(emitter);
+    }
+
+    // Everything emit() sends after beginProgram, which does not depend on the program count
+    public void emitArtifacts(ArtifactEmitter emitter) {
+        emitter.tokens(tokens);
+        emitter.diagnostics(ArtifactEmitter.Phase.LEX, lexErrors, lexWarnings);
+        if (parsed) {
+            List<String> parseErrors = parseError == null ? Collections.emptyList() : List.of(parseError);
+            emitter.diagnostics(ArtifactEmitter.Phase.PARSE, parseErrors, Collections.emptyList());
+        }
+        if (symbolTable != null) {
+            if (cst != null) {
+                emitter.cst(cst);
+            }
+            if (astArena != null) {
+                emitter.ast(astArena);
+            }
+            else {
+                emitter.ast(ast);
+            }
+            emitter.symbolTable(symbolTable);
+            emitter.diagnostics(ArtifactEmitter.Phase.SEMANTIC, semanticErrors, semanticWarnings);
+        }
+        emitter.endProgram();
+    }
+}
@@ -0,0 +1,92 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+// Sends a file, or stdin, to a CompileDaemon and copies what comes back to stdout
+//
+//   java CompileClient --socket=/tmp/compiler.sock program.txt
+//   java CompileClient --port=7341 < program.txt
+public class CompileClient {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    public static void main(String[] args) throws IOException {
+        String socketPath = null;
+        int port = -1;
+        String file = null;
+
+        for (String arg : args) {
+            if (arg.startsWith("--socket=")) {
+                socketPath = arg.substring("--socket=".length());
+            }
+            else if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            }
+            else {
+                file = arg;
+            }
+        }
+        if ((socketPath == null) == (port < 0)) {
+            System.err.println("Usage: java CompileClient --socket=PATH | --port=N [file]");
+            System.exit(1);
+        }
+
+        SocketChannel connection;
+        try {
+            if (socketPath != null) {
+                connection = SocketChannel.open(StandardProtocolFamily.UNIX);
+                connection.connect(UnixDomainSocketAddress.of(socketPath));
+            }
+            else {
+                connection = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            }
+        }
+        catch (IOException e) {
+            System.err.println("Error: Cannot connect to the compile daemon: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        InputStream in = file != null ? Files.newInputStream(Paths.get(file)) : System.in;
+        // The daemon answers each program as it arrives, so the request is sent on its own
+        // thread while this one reads; otherwise a large request and its answer could fill
+        // both socket buffers and stall
+        Thread sender = new Thread(() -> send(in, connection), "compile-client-send");
+        sender.start();
+
+        // The channel is used directly: the streams from Channels share one lock between
+        // reading and writing, which would block the sender for as long as this thread waits
+        try (connection) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            while (connection.read(buffer) >= 0) {
+                System.out.write(buffer.array(), 0, buffer.position());
+                buffer.clear();
+            }
+            System.out.flush();
+        }
+    }
+
+    private static void send(InputStream in, SocketChannel connection) {
+        try (in) {
+            byte[] bytes = new byte[BUFFER_SIZE];
+            int count;
+            while ((count = in.read(bytes)) >= 0) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, count);
+                while (buffer.hasRemaining()) {
+                    connection.write(buffer);
+                }
+            }
+            // End of the request; the daemon answers the last program and closes
+            connection.shutdownOutput();
+        }
+        catch (IOException e) {
+            System.err.println("Error: Cannot send the program: " + e.getMessage());
+        }
+    }
+}
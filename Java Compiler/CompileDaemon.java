@@ -0,0 +1,140 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Keeps one warmed-up JVM compiling programs sent over a Unix domain socket or a localhost TCP
+// port. Each connection is one request: the client sends source text and closes its side, and
+// gets back exactly what Main prints for a file with the same text, streamed a program at a
+// time. Programs are framed as in file mode: each ends with the line holding its '$'.
+//
+//   java CompileDaemon --socket=/tmp/compiler.sock
+//   java CompileDaemon --port=7341
+//
+// Connections are served on virtual threads where the JVM has them (Java 21 and later), and on
+// a cached thread pool otherwise.
+public class CompileDaemon {
+    private static final String WARMUP_PROGRAM = "{\nint a\na = 1+2\nstring s\ns = \"hello\"\nboolean b\n"
+            + "b = (a == 3)\nif (b == true) {\nprint(s)\n}\nwhile (a != 5) {\na = 1+a\n}\n}$";
+    private static final int WARMUP_RUNS = 5000;
+
+    public static void main(String[] args) throws IOException {
+        String socketPath = null;
+        int port = -1;
+
+        for (String arg : args) {
+            if (arg.startsWith("--socket=")) {
+                socketPath = arg.substring("--socket=".length());
+            }
+            else if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            }
+            else {
+                System.err.println("Usage: java CompileDaemon --socket=PATH | --port=N");
+                System.exit(1);
+            }
+        }
+        if ((socketPath == null) == (port < 0)) {
+            System.err.println("Usage: java CompileDaemon --socket=PATH | --port=N");
+            System.exit(1);
+        }
+
+        ServerSocketChannel server;
+        if (socketPath != null) {
+            Path path = Paths.get(socketPath);
+            // A socket file left behind by a daemon that did not shut down cleanly
+            Files.deleteIfExists(path);
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            server.bind(UnixDomainSocketAddress.of(path));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    Files.deleteIfExists(path);
+                }
+                catch (IOException e) {
+                    // Nothing more to do while shutting down
+                }
+            }));
+        }
+        else {
+            server = ServerSocketChannel.open();
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        }
+
+        warmUp();
+        System.err.println("Listening on " + server.getLocalAddress());
+        serve(server, connectionExecutor());
+    }
+
+    // Runs the whole pipeline enough times for the JIT to compile it before the first request
+    private static void warmUp() {
+        ProgramOutput discard = Main.output(new PrintStream(OutputStream.nullOutputStream()));
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            Main.processProgram(WARMUP_PROGRAM, 1, discard);
+        }
+    }
+
+    static void serve(ServerSocketChannel server, ExecutorService executor) throws IOException {
+        try {
+            while (true) {
+                SocketChannel connection = server.accept();
+                executor.execute(() -> handle(connection));
+            }
+        }
+        finally {
+            executor.shutdown();
+            server.close();
+        }
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() if this JVM has it, found reflectively so
+    // that the daemon still compiles and runs on Java 17
+    static ExecutorService connectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "compile-connection");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private static void handle(SocketChannel connection) {
+        try (connection) {
+            // The client has sent everything by the time it closes its side. The bytes are read
+            // through a MappedSource, one char per byte, exactly as file mode reads a file.
+            byte[] source = Channels.newInputStream(connection).readAllBytes();
+            PrintStream out = new PrintStream(new BufferedOutputStream(Channels.newOutputStream(connection), 1 << 16));
+            compileAll(new MappedSource(ByteBuffer.wrap(source)), out);
+            out.flush();
+        }
+        catch (IOException e) {
+            System.err.println("Error: Connection failed: " + e.getMessage());
+        }
+    }
+
+    // The same framing and numbering as Main's file mode, which this shares
+    static void compileAll(CharSequence source, PrintStream out) {
+        ProgramOutput output = Main.output(out);
+        Main.forEachProgram(source, (program, programCount) -> {
+            Main.processProgram(program, programCount, output);
+            // Each program reaches the client as soon as it is compiled
+            out.flush();
+        }, () -> out.println("Warning: Missing '$' at the end of the code. Adding '$'..."));
+    }
+}
@@ -0,0 +1,123 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+// The embeddable entry point: compile() runs the whole front end on one program and returns
+// everything it produced in a CompilationResult. It prints nothing, and every call builds its
+// own lexer, parser, interner and symbol table, so calls can run on any number of threads.
+public final class Compiler {
+    // Part of every CompilationCache key; bump it whenever any output for the same source changes
+    public static final int VERSION = 1;
+
+    private Compiler() {
+    }
+
+    // Immutable; start from DEFAULTS and change what is needed with the with methods
+    public static final class Options {
+        public static final Options DEFAULTS = new Options(0, ForkJoinPool.commonPool(), true, false, ParseListener.NONE);
+
+        private final int lexChunkSize;
+        private final ForkJoinPool lexPool;
+        private final boolean buildCst;
+        private final boolean arena;
+        private final ParseListener listener;
+
+        private Options(int lexChunkSize, ForkJoinPool lexPool, boolean buildCst, boolean arena, ParseListener listener) {
+            this.lexChunkSize = lexChunkSize;
+            this.lexPool = lexPool;
+            this.buildCst = buildCst;
+            this.arena = arena;
+            this.listener = listener;
+        }
+
+        // Programs longer than chunkSize chars are lexed by a ParallelLexer on pool; 0 turns it off
+        public Options withParallelLex(int chunkSize, ForkJoinPool pool) {
+            return new Options(chunkSize, pool, buildCst, arena, listener);
+        }
+
+        public Options withCst(boolean buildCst) {
+            return new Options(lexChunkSize, lexPool, buildCst, arena, listener);
+        }
+
+        // Build the AST into an ASTArena instead of ASTNode objects
+        public Options withArena(boolean arena) {
+            return new Options(lexChunkSize, lexPool, buildCst, arena, listener);
+        }
+
+        // Receives this call's parse events. The listener belongs to the caller, so it should
+        // not be shared between concurrent calls unless it is thread safe.
+        public Options withListener(ParseListener listener) {
+            return new Options(lexChunkSize, lexPool, buildCst, arena, listener);
+        }
+
+        public int getLexChunkSize() {
+            return lexChunkSize;
+        }
+
+        public boolean isBuildCst() {
+            return buildCst;
+        }
+
+        public boolean isArena() {
+            return arena;
+        }
+    }
+
+    public static CompilationResult compile(CharSequence source) {
+        return compile(source, Options.DEFAULTS);
+    }
+
+    public static CompilationResult compile(CharSequence source, Options options) {
+        SymbolInterner symbols = new SymbolInterner();
+        List<String> lexErrors = new ArrayList<>();
+        List<String> lexWarnings = new ArrayList<>();
+        TokenBuffer tokens = lex(source, symbols, options.lexChunkSize, options.lexPool, lexErrors, lexWarnings);
+
+        if (!lexErrors.isEmpty()) {
+            return new CompilationResult(tokens, lexErrors, lexWarnings);
+        }
+
+        if (!options.arena) {
+            FrontEnd frontEnd = new FrontEnd(tokens.cursor(), options.listener, options.buildCst, symbols);
+            frontEnd.parse();
+            if (frontEnd.getError() != null) {
+                return new CompilationResult(tokens, lexErrors, lexWarnings, frontEnd.getError());
+            }
+            SemanticChecker checker = frontEnd.getChecker();
+            return new CompilationResult(tokens, lexErrors, lexWarnings, frontEnd.getCst(), frontEnd.getAst(), null,
+                    checker.getErrors(), checker.getWarnings(), checker.getSymbolTable());
+        }
+        else {
+            Parser parser = new Parser(tokens.cursor(), options.listener);
+            parser.parse();
+            if (parser.getError() != null) {
+                return new CompilationResult(tokens, lexErrors, lexWarnings, parser.getError());
+            }
+            ProgramNode cst = options.buildCst ? new CSTBuilder(tokens.cursor()).parseProgram() : null;
+            ASTArenaBuilder builder = new ASTArenaBuilder(tokens, symbols);
+            ASTArena arena = builder.build();
+            return new CompilationResult(tokens, lexErrors, lexWarnings, cst, null, arena,
+                    builder.getErrors(), builder.getWarnings(), builder.getSymbolTable());
+        }
+    }
+
+    // Lexes source with a ParallelLexer if it is longer than chunkSize, adding the lexer's
+    // errors and warnings to the lists given
+    static TokenBuffer lex(CharSequence source, SymbolInterner symbols, int chunkSize, ForkJoinPool pool,
+                           List<String> errors, List<String> warnings) {
+        TokenBuffer tokens;
+        if (chunkSize > 0 && source.length() > chunkSize) {
+            ParallelLexer lexer = new ParallelLexer(source, chunkSize, pool, symbols);
+            tokens = lexer.tokenizeBuffer();
+            errors.addAll(lexer.getErrors());
+            warnings.addAll(lexer.getWarnings());
+        }
+        else {
+            Lexer lexer = new Lexer(source, symbols);
+            tokens = lexer.tokenizeBuffer();
+            errors.addAll(lexer.getErrors());
+            warnings.addAll(lexer.getWarnings());
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,54 @@
+import java.io.PrintStream;
+import java.util.Arrays;
+
+// Counts how often each production runs and how long it takes, including the productions it
+// calls (so a production that recurses counts its nested time again). Not thread safe: use one
+// per parse and merge them.
+public class CountingParseListener implements ParseListener {
+    private static final Production[] PRODUCTIONS = Production.values();
+
+    private final long[] calls = new long[PRODUCTIONS.length];
+    private final long[] nanos = new long[PRODUCTIONS.length];
+    // Start times of the productions currently entered, innermost last
+    private long[] starts = new long[32];
+    private int depth;
+
+    @Override
+    public void enter(Production production, int position) {
+        if (depth == starts.length) {
+            starts = Arrays.copyOf(starts, depth * 2);
+        }
+        starts[depth++] = System.nanoTime();
+        calls[production.ordinal()]++;
+    }
+
+    @Override
+    public void exit(Production production, int position) {
+        nanos[production.ordinal()] += System.nanoTime() - starts[--depth];
+    }
+
+    public long getCalls(Production production) {
+        return calls[production.ordinal()];
+    }
+
+    public long getNanos(Production production) {
+        return nanos[production.ordinal()];
+    }
+
+    public synchronized void merge(CountingParseListener other) {
+        for (int i = 0; i < PRODUCTIONS.length; i++) {
+            calls[i] += other.calls[i];
+            nanos[i] += other.nanos[i];
+        }
+    }
+
+    public synchronized void report(PrintStream out) {
+        out.println(String.format("%-28s %12s %12s", "Production", "Calls", "Total ms"));
+        for (Production production : PRODUCTIONS) {
+            int i = production.ordinal();
+            if (calls[i] > 0) {
+                out.println(String.format("%-28s %12d %12.3f", production.getTrace(), calls[i], nanos[i] / 1e6));
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+// Bulk scanning helpers for the lexer's whitespace, comment and string skipping.
+// MappedSource input is scanned eight bytes at a time; String input goes through String.indexOf,
+// which the JIT compiles to a vectorized intrinsic. Short ranges, anything else, and every input
+// when the lexer.scalar system property is set take the plain character loop.
+final class FastScan {
+    static final boolean ENABLED = !Boolean.getBoolean("lexer.scalar");
+    private static final int SHORT_RANGE = 16;
+
+    private FastScan() {
+    }
+
+    // First index of c in [from, to), or to if there is none
+    static int indexOf(CharSequence input, char c, int from, int to) {
+        if (ENABLED) {
+            if (input instanceof MappedSource) {
+                return ((MappedSource) input).indexOf(c, from, to);
+            }
+            if (input instanceof String) {
+                int index = ((String) input).indexOf(c, from);
+                return index < 0 || index > to ? to : index;
+            }
+        }
+        for (int i = from; i < to; i++) {
+            if (input.charAt(i) == c) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    // Last index of c in [from, to), or -1 if there is none
+    static int lastIndexOf(CharSequence input, char c, int from, int to) {
+        if (ENABLED && to - from > SHORT_RANGE) {
+            if (input instanceof MappedSource) {
+                return ((MappedSource) input).lastIndexOf(c, from, to);
+            }
+            if (input instanceof String) {
+                int index = ((String) input).lastIndexOf(c, to - 1);
+                return index < from ? -1 : index;
+            }
+        }
+        for (int i = to - 1; i >= from; i--) {
+            if (input.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Number of occurrences of c in [from, to)
+    static int count(CharSequence input, char c, int from, int to) {
+        if (ENABLED && to - from > SHORT_RANGE) {
+            if (input instanceof MappedSource) {
+                return ((MappedSource) input).count(c, from, to);
+            }
+            if (input instanceof String) {
+                String string = (String) input;
+                int count = 0;
+                int index = string.indexOf(c, from);
+                while (index >= 0 && index < to) {
+                    count++;
+                    index = string.indexOf(c, index + 1);
+                }
+                return count;
+            }
+        }
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (input.charAt(i) == c) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // End of the run of ASCII whitespace starting at from. Most runs are a space or two, so
+    // only runs that outlast SHORT_RANGE characters switch to the word-at-a-time scan.
+    static int whitespaceEnd(CharSequence input, int from, int to) {
+        int i = from;
+        int shortEnd = Math.min(to, from + SHORT_RANGE);
+        while (i < shortEnd && isAsciiWhitespace(input.charAt(i))) {
+            i++;
+        }
+        if (i < shortEnd || i == to) {
+            return i;
+        }
+        if (ENABLED && input instanceof MappedSource) {
+            return ((MappedSource) input).whitespaceEnd(i, to);
+        }
+        while (i < to && isAsciiWhitespace(input.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    // First quote, line break or slash in [from, to), or to: the characters a string body
+    // cannot simply be skipped over
+    static int stringStop(CharSequence input, int from, int to) {
+        if (ENABLED && input instanceof MappedSource) {
+            return ((MappedSource) input).stringStop(from, to);
+        }
+        for (int i = from; i < to; i++) {
+            char c = input.charAt(i);
+            if (c == '"' || c == '\n' || c == '/') {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    static boolean isAsciiWhitespace(char c) {
+        return c < ScannerTables.ASCII
+            && (ScannerTables.CLASSES[c] == ScannerTables.SPACE || ScannerTables.CLASSES[c] == ScannerTables.NEWLINE);
+    }
+}
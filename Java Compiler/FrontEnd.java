@@ -0,0 +1,424 @@
+// Parser, CSTBuilder and AST fused into one pass over the tokens. The control flow, listener
+// events and error messages are Parser's; while no syntax error has been seen, each production also builds
+// its CST node (only when asked for), its AST node and its symbol table entries. Main only looks
+// at the CST and AST of programs that parse, and for those the three passes walk the tokens the
+// same way, so the trees and checks come out exactly as the separate passes produce them.
+public class FrontEnd {
+    private TokenStream tokens;
+    private int pos;
+    private ParseListener listener;
+    private boolean buildCst;
+    private int currentScope = 0;
+    private SemanticChecker checker;
+    private ProgramNode cst;
+    private ProgramASTNode ast;
+    private String error;
+
+    public FrontEnd(TokenStream tokens, ParseListener listener, boolean buildCst) {
+        this(tokens, listener, buildCst, new SymbolInterner());
+    }
+
+    // symbols should be the interner the tokens were lexed with
+    public FrontEnd(TokenStream tokens, ParseListener listener, boolean buildCst, SymbolInterner symbols) {
+        this.tokens = tokens;
+        this.listener = listener;
+        this.buildCst = buildCst;
+        this.checker = new SemanticChecker(symbols);
+        this.error = null;
+    }
+
+    public void parse() {
+        listener.parseStarted();
+        parseProgram();
+
+        if (error == null && !isAtEnd()) {
+            consume(TokenType.EOF, "Expected '$' to end");
+        }
+        if (error == null) {
+            checker.finish();
+        }
+        listener.parseFinished(error);
+    }
+
+    private void parseProgram() {
+        listener.enter(Production.PROGRAM, pos);
+        cst = buildCst ? new ProgramNode() : null;
+        ast = new ProgramASTNode();
+        ast.addChild(parseBlock(cst));
+        ast.addChild(new EOFASTNode());
+        addCst(cst, new EOFNode());
+        listener.exit(Production.PROGRAM, pos);
+    }
+
+    private BlockASTNode parseBlock(Node cstParent) {
+        listener.enter(Production.BLOCK, pos);
+        BlockASTNode block = new BlockASTNode();
+        BlockNode cstBlock = buildCst ? new BlockNode() : null;
+        addCst(cstParent, cstBlock);
+
+        consume(TokenType.LEFT_BRACE, "Expected statement to start with left brace");
+        block.addChild(new LeftBraceASTNode());
+        addCst(cstBlock, new LeftBraceNode());
+        StatementListNode cstStatements = buildCst ? new StatementListNode() : null;
+        addCst(cstBlock, cstStatements);
+
+        currentScope++;
+        checker.openBlock();
+        parseStatementList(block, cstStatements);
+        checker.closeBlock();
+        currentScope--;
+
+        consume(TokenType.RIGHT_BRACE, "Expected statement to end at right brace");
+        block.addChild(new RightBraceASTNode());
+        // CSTBuilder adds a second, empty statement list before the closing brace
+        addCst(cstBlock, new StatementListNode());
+        addCst(cstBlock, new RightBraceNode());
+        listener.exit(Production.BLOCK, pos);
+        return block;
+    }
+
+    // Loops where the grammar recurses, as Parser.parseStatementList does
+    private void parseStatementList(BlockASTNode block, Node cstStatements) {
+        listener.enter(Production.STATEMENT_LIST, pos);
+        int lists = 1;
+        while (!check(TokenType.RIGHT_BRACE) && !isAtEnd()) {
+            if (check(TokenType.LEFT_BRACE) || check(TokenType.PRINT) || check(TokenType.WHILE) || check(TokenType.IF) ||
+                check(TokenType.ID) || check(TokenType.INT) || check(TokenType.STRING) || check(TokenType.BOOLEAN)) {
+                block.addChild(parseStatement(cstStatements));
+                listener.enter(Production.STATEMENT_LIST, pos);
+                lists++;
+            }
+            else {
+                error("Cannot start statement with");
+                break;
+            }
+        }
+        for (; lists > 0; lists--) {
+            listener.exit(Production.STATEMENT_LIST, pos);
+        }
+    }
+
+    private ASTNode parseStatement(Node cstStatements) {
+        listener.enter(Production.STATEMENT, pos);
+        StatementNode cstStatement = buildCst ? new StatementNode() : null;
+        addCst(cstStatements, cstStatement);
+        Token token = tokens.peek();
+        ASTNode statement = null;
+
+        if (check(TokenType.INT)) {
+            statement = parseVarDecl(cstStatement);
+        }
+        else if (check(TokenType.STRING)) {
+            statement = parseVarDecl(cstStatement);
+        }
+        else if (check(TokenType.BOOLEAN)) {
+            statement = parseVarDecl(cstStatement);
+        }
+        else if (match(TokenType.ID)) {
+            statement = parseAssignmentStatement(token, cstStatement);
+        }
+        else if (match(TokenType.PRINT)) {
+            statement = parsePrintStatement(cstStatement);
+        }
+        else if (match(TokenType.IF)) {
+            statement = parseIfStatement(cstStatement);
+        }
+        else if (match(TokenType.WHILE)) {
+            statement = parseWhileStatement(cstStatement);
+        }
+        else if (check(TokenType.LEFT_BRACE)) {
+            statement = parseBlock(cstStatement);
+        }
+        else {
+            error("Expected a statement");
+        }
+        listener.exit(Production.STATEMENT, pos);
+        return statement;
+    }
+
+    private VariableDeclarationASTNode parseVarDecl(Node cstStatement) {
+        listener.enter(Production.VAR_DECL, pos);
+        VariableDeclarationASTNode varDecl = new VariableDeclarationASTNode();
+        VariableDeclarationNode cstVarDecl = buildCst ? new VariableDeclarationNode() : null;
+        addCst(cstStatement, cstVarDecl);
+
+        ValueType type = parseType(varDecl, cstVarDecl);
+        Token idToken = tokens.peek();
+        consume(TokenType.ID, "Expected identifier after type");
+
+        if (error == null) {
+            varDecl.addChild(new IdentifierASTNode(idToken.getValue()));
+            addCst(cstVarDecl, new IdentifierNode(idToken.getValue()));
+            checker.declare(type, idToken, currentScope);
+        }
+        listener.exit(Production.VAR_DECL, pos);
+        return varDecl;
+    }
+
+    private AssignmentStatementASTNode parseAssignmentStatement(Token idToken, Node cstStatement) {
+        listener.enter(Production.ASSIGNMENT_STATEMENT, pos);
+        AssignmentStatementASTNode assignment = new AssignmentStatementASTNode();
+        AssignmentStatementNode cstAssignment = buildCst ? new AssignmentStatementNode() : null;
+        addCst(cstStatement, cstAssignment);
+        assignment.addChild(new IdentifierASTNode(idToken.getValue()));
+        addCst(cstAssignment, new IdentifierNode(idToken.getValue()));
+
+        consume(TokenType.ASSIGN, "Expected '=' after identifier");
+        ASTNode expr = parseExpr(cstAssignment);
+        assignment.addChild(expr);
+
+        if (error == null) {
+            checker.assign(idToken, expr, currentScope);
+        }
+        listener.exit(Production.ASSIGNMENT_STATEMENT, pos);
+        return assignment;
+    }
+
+    private ValueType parseType(ASTNode varDecl, Node cstVarDecl) {
+        listener.enter(Production.TYPE, pos);
+        Token token = tokens.peek();
+        ValueType type = null;
+        if (match(TokenType.INT, TokenType.BOOLEAN, TokenType.STRING)) {
+            type = ValueType.of(token.getType());
+            varDecl.addChild(new VariableTypeASTNode(token.getValue()));
+            addCst(cstVarDecl, new VariableTypeNode(token.getValue()));
+        }
+        else {
+            error("Expected type");
+        }
+        listener.exit(Production.TYPE, pos);
+        return type;
+    }
+
+    // Returns the expression's AST node. The CST wraps every expression in an Expr node, which
+    // the AST leaves out.
+    private ASTNode parseExpr(Node cstParent) {
+        listener.enter(Production.EXPR, pos);
+        ExpressionNode cstExpr = buildCst ? new ExpressionNode() : null;
+        addCst(cstParent, cstExpr);
+        Token token = tokens.peek();
+        ASTNode expr = null;
+
+        if (check(TokenType.ID)) {
+            advance();
+            addCst(cstExpr, new IdentifierNode(token.getValue()));
+            expr = new IdentifierASTNode(token.getValue());
+        }
+        else if (check(TokenType.DIGIT)) {
+            expr = parseIntExpr(cstExpr);
+        }
+        else if (check(TokenType.LEFT_PARENTHESIS)) {
+            expr = parseBooleanExpr(cstExpr);
+        }
+        else if (check(TokenType.CHAR)) {
+            expr = parseStringExpr(cstExpr);
+        }
+        else if (check(TokenType.BOOLEAN_VAL)) {
+            // Parsed as a boolean expression, but a bare value in both trees
+            listener.enter(Production.BOOLEAN_EXPR, pos);
+            advance();
+            addCst(cstExpr, new BooleanValueNode(token.getValue()));
+            expr = new BooleanValueASTNode(token.getValue());
+            listener.exit(Production.BOOLEAN_EXPR, pos);
+        }
+        else {
+            error("Expected expression");
+        }
+        listener.exit(Production.EXPR, pos);
+        return expr;
+    }
+
+    private BooleanExpressionASTNode parseBooleanExpr(Node cstParent) {
+        listener.enter(Production.BOOLEAN_EXPR, pos);
+        BooleanExpressionASTNode boolExpr = new BooleanExpressionASTNode();
+        BooleanExpressionNode cstBoolExpr = buildCst ? new BooleanExpressionNode() : null;
+        addCst(cstParent, cstBoolExpr);
+        Token token = tokens.peek();
+
+        if (match(TokenType.BOOLEAN_VAL)) {
+            boolExpr.addChild(new BooleanValueASTNode(token.getValue()));
+            addCst(cstBoolExpr, new BooleanValueNode(token.getValue()));
+        }
+        else if (match(TokenType.LEFT_PARENTHESIS)) {
+            boolExpr.addChild(new LeftParenthesisASTNode());
+            addCst(cstBoolExpr, new LeftParenthesisNode());
+            boolExpr.addChild(parseExpr(cstBoolExpr));
+            parseBoolOp(boolExpr, cstBoolExpr);
+            boolExpr.addChild(parseExpr(cstBoolExpr));
+            consume(TokenType.RIGHT_PARENTHESIS, "Expected ')' after boolean expression");
+            boolExpr.addChild(new RightParenthesisASTNode());
+            addCst(cstBoolExpr, new RightParenthesisNode());
+        }
+        else {
+            error("Expected boolean expression");
+        }
+        listener.exit(Production.BOOLEAN_EXPR, pos);
+        return boolExpr;
+    }
+
+    private void parseBoolOp(ASTNode boolExpr, Node cstBoolExpr) {
+        listener.enter(Production.BOOLEAN_OP, pos);
+        Token token = tokens.peek();
+        if (match(TokenType.BOOLEAN_OP)) {
+            boolExpr.addChild(new BooleanOperatorASTNode(token.getValue()));
+            addCst(cstBoolExpr, new BooleanOperatorNode(token.getValue()));
+        }
+        else {
+            error("Expected boolean operator");
+        }
+        listener.exit(Production.BOOLEAN_OP, pos);
+    }
+
+    private void parseIntOp(ASTNode intExpr, Node cstIntExpr) {
+        listener.enter(Production.INT_OP, pos);
+        if (match(TokenType.INT_OP)) {
+            intExpr.addChild(new IntOpASTNode());
+            addCst(cstIntExpr, new IntOpNode());
+        }
+        else {
+            error("Expected integer operator");
+        }
+        listener.exit(Production.INT_OP, pos);
+    }
+
+    private IfStatementASTNode parseIfStatement(Node cstStatement) {
+        listener.enter(Production.IF_STATEMENT, pos);
+        IfStatementASTNode ifStatement = new IfStatementASTNode();
+        IfStatementNode cstIfStatement = buildCst ? new IfStatementNode() : null;
+        addCst(cstStatement, cstIfStatement);
+        ifStatement.addChild(parseBooleanExpr(cstIfStatement));
+        ifStatement.addChild(parseBlock(cstIfStatement));
+        listener.exit(Production.IF_STATEMENT, pos);
+        return ifStatement;
+    }
+
+    private WhileStatementASTNode parseWhileStatement(Node cstStatement) {
+        listener.enter(Production.WHILE_STATEMENT, pos);
+        WhileStatementASTNode whileStatement = new WhileStatementASTNode();
+        WhileStatementNode cstWhileStatement = buildCst ? new WhileStatementNode() : null;
+        addCst(cstStatement, cstWhileStatement);
+        whileStatement.addChild(parseBooleanExpr(cstWhileStatement));
+        whileStatement.addChild(parseBlock(cstWhileStatement));
+        listener.exit(Production.WHILE_STATEMENT, pos);
+        return whileStatement;
+    }
+
+    private IntegerExpressionASTNode parseIntExpr(Node cstParent) {
+        listener.enter(Production.INT_EXPR, pos);
+        IntegerExpressionASTNode intExpr = new IntegerExpressionASTNode();
+        IntegerExpressionNode cstIntExpr = buildCst ? new IntegerExpressionNode() : null;
+        addCst(cstParent, cstIntExpr);
+        Token token = tokens.peek();
+
+        if (match(TokenType.DIGIT)) {
+            intExpr.addChild(new IntegerLiteralASTNode(token.getValue()));
+            addCst(cstIntExpr, new IntegerLiteralNode(token.getValue()));
+            if (check(TokenType.INT_OP)) {
+                parseIntOp(intExpr, cstIntExpr);
+                intExpr.addChild(parseExpr(cstIntExpr));
+            }
+        }
+        else {
+            error("Expected integer expression");
+        }
+        listener.exit(Production.INT_EXPR, pos);
+        return intExpr;
+    }
+
+    private StringExpressionASTNode parseStringExpr(Node cstParent) {
+        listener.enter(Production.STRING_EXPR, pos);
+        StringExpressionASTNode stringExpr = new StringExpressionASTNode();
+        StringExpressionNode cstStringExpr = buildCst ? new StringExpressionNode() : null;
+        addCst(cstParent, cstStringExpr);
+        Token token = tokens.peek();
+
+        if (match(TokenType.CHAR)) {
+            stringExpr.addChild(new StringASTNode(token.getValue()));
+            addCst(cstStringExpr, new StringNode(token.getValue()));
+        }
+        else {
+            error("Expected string expression");
+        }
+        listener.exit(Production.STRING_EXPR, pos);
+        return stringExpr;
+    }
+
+    private PrintStatementASTNode parsePrintStatement(Node cstStatement) {
+        listener.enter(Production.PRINT_STATEMENT, pos);
+        PrintStatementASTNode printStatement = new PrintStatementASTNode();
+        PrintStatementNode cstPrintStatement = buildCst ? new PrintStatementNode() : null;
+        addCst(cstStatement, cstPrintStatement);
+        consume(TokenType.LEFT_PARENTHESIS, "Expected '(' after 'print'");
+        printStatement.addChild(parseExpr(cstPrintStatement));
+        consume(TokenType.RIGHT_PARENTHESIS, "Expected ')' after expression");
+        listener.exit(Production.PRINT_STATEMENT, pos);
+        return printStatement;
+    }
+
+    private void addCst(Node parent, Node child) {
+        if (parent != null) {
+            parent.addChild(child);
+        }
+    }
+
+    private boolean match(TokenType... types) {
+        for (TokenType type : types) {
+            if (check(type)) {
+                advance();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void consume(TokenType type, String message) {
+        if (check(type)) {
+            advance();
+            return;
+        }
+        error(message);
+    }
+
+    private void error(String message) {
+        if (error == null) {
+            Token current = tokens.peek();
+            error = message + " at " + (current != null ? current : "EOF");
+        }
+    }
+
+    private void advance() {
+        if (!isAtEnd()) {
+            tokens.skip();
+            pos++;
+        }
+    }
+
+    private boolean check(TokenType type) {
+        if (isAtEnd())
+            return false;
+        return tokens.peekType() == type;
+    }
+
+    private boolean isAtEnd() {
+        TokenType current = tokens.peekType();
+        return current == null || current == TokenType.EOF;
+    }
+
+    // The message the parse stopped with, or null if the program parsed
+    public String getError() {
+        return error;
+    }
+
+    // The CST, or null if it was not asked for; only meaningful when error is null
+    public ProgramNode getCst() {
+        return cst;
+    }
+
+    public ProgramASTNode getAst() {
+        return ast;
+    }
+
+    public SemanticChecker getChecker() {
+        return checker;
+    }
+}
@@ -0,0 +1,216 @@
+import java.util.List;
+
+// Streams each program as one JSON object on its own line:
+//
+//   {"program":1,"tokens":[{"type":"LEFT_BRACE","start":0,"length":1,"line":1,"column":1,"value":"{"},...],
+//    "lex":{"errors":[],"warnings":[]},"parse":{...},"cst":TREE,"ast":TREE,
+//    "symbolTable":[{"name":"a","type":"int","scope":1,"line":2},...],"semantic":{...}}
+//
+// where TREE is {"kind":"BLOCK","label":"Block","children":[TREE,...]}, with no "children"
+// for a leaf. Members appear in the order ArtifactEmitter's calls come in; the ones for phases
+// that did not run are left out.
+public class JsonEmitter implements ArtifactEmitter {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final OutputSink out;
+    // False until the current program's object has a member, so the next one needs no comma
+    private boolean hasMember;
+
+    public JsonEmitter(OutputSink out) {
+        this.out = out;
+    }
+
+    @Override
+    public void beginProgram(int programCount) {
+        out.print("{\"program\":").print(programCount);
+        hasMember = true;
+    }
+
+    private void member(String name) {
+        if (hasMember) {
+            out.print(",");
+        }
+        out.print("\"").print(name).print("\":");
+        hasMember = true;
+    }
+
+    @Override
+    public void tokens(TokenBuffer tokens) {
+        member("tokens");
+        out.print("[");
+        for (int i = 0; i < tokens.size(); i++) {
+            if (i > 0) {
+                out.print(",");
+            }
+            out.print("{\"type\":\"").print(tokens.type(i).toString());
+            out.print("\",\"start\":").print(tokens.start(i));
+            out.print(",\"length\":").print(tokens.length(i));
+            out.print(",\"line\":").print(tokens.line(i));
+            out.print(",\"column\":").print(tokens.column(i));
+            out.print(",\"value\":");
+            string(tokens.value(i));
+            out.print("}");
+        }
+        out.print("]");
+    }
+
+    @Override
+    public void cst(Node root) {
+        member("cst");
+        tree(root);
+    }
+
+    private void tree(Node node) {
+        out.print("{\"kind\":\"").print(node.kind.name()).print("\",\"label\":");
+        string(node.name);
+        if (!node.children.isEmpty()) {
+            out.print(",\"children\":[");
+            for (int i = 0; i < node.children.size(); i++) {
+                if (i > 0) {
+                    out.print(",");
+                }
+                tree(node.children.get(i));
+            }
+            out.print("]");
+        }
+        out.print("}");
+    }
+
+    @Override
+    public void ast(ASTNode root) {
+        member("ast");
+        tree(root);
+    }
+
+    private void tree(ASTNode node) {
+        out.print("{\"kind\":\"").print(node.kind.name()).print("\",\"label\":");
+        string(node.name);
+        if (!node.children.isEmpty()) {
+            out.print(",\"children\":[");
+            for (int i = 0; i < node.children.size(); i++) {
+                if (i > 0) {
+                    out.print(",");
+                }
+                tree(node.children.get(i));
+            }
+            out.print("]");
+        }
+        out.print("}");
+    }
+
+    @Override
+    public void ast(ASTArena arena) {
+        member("ast");
+        if (arena.size() > 0) {
+            tree(arena, arena.root());
+        }
+        else {
+            out.print("null");
+        }
+    }
+
+    private void tree(ASTArena arena, int node) {
+        out.print("{\"kind\":\"").print(arena.kind(node).name()).print("\",\"label\":");
+        string(arena.label(node));
+        int child = arena.firstChild(node);
+        if (child >= 0) {
+            out.print(",\"children\":[");
+            for (; child >= 0; child = arena.nextSibling(child)) {
+                tree(arena, child);
+                if (arena.nextSibling(child) >= 0) {
+                    out.print(",");
+                }
+            }
+            out.print("]");
+        }
+        out.print("}");
+    }
+
+    @Override
+    public void symbolTable(SymbolTable symbolTable) {
+        member("symbolTable");
+        out.print("[");
+        boolean first = true;
+        for (SymbolTableEntry entry : symbolTable.getEntries()) {
+            if (!first) {
+                out.print(",");
+            }
+            first = false;
+            out.print("{\"name\":");
+            string(entry.getName());
+            out.print(",\"type\":\"").print(entry.getType());
+            out.print("\",\"scope\":").print(entry.getScope());
+            out.print(",\"line\":").print(entry.getLine()).print("}");
+        }
+        out.print("]");
+    }
+
+    @Override
+    public void diagnostics(Phase phase, List<String> errors, List<String> warnings) {
+        switch (phase) {
+            case LEX:
+                member("lex");
+                break;
+            case PARSE:
+                member("parse");
+                break;
+            default:
+                member("semantic");
+                break;
+        }
+        out.print("{\"errors\":");
+        strings(errors);
+        out.print(",\"warnings\":");
+        strings(warnings);
+        out.print("}");
+    }
+
+    @Override
+    public void endProgram() {
+        out.println("}");
+        hasMember = false;
+    }
+
+    private void strings(List<String> strings) {
+        out.print("[");
+        for (int i = 0; i < strings.size(); i++) {
+            if (i > 0) {
+                out.print(",");
+            }
+            string(strings.get(i));
+        }
+        out.print("]");
+    }
+
+    // A JSON string literal, escaped a character at a time
+    private void string(String value) {
+        out.print('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.print('\\').print(c);
+            }
+            else if (c == '\n') {
+                out.print("\\n");
+            }
+            else if (c == '\r') {
+                out.print("\\r");
+            }
+            else if (c == '\t') {
+                out.print("\\t");
+            }
+            else if (c < 0x20) {
+                out.print("\\u00").print(HEX[c >> 4]).print(HEX[c & 0xF]);
+            }
+            else {
+                out.print(c);
+            }
+        }
+        out.print('"');
+    }
+
+    @Override
+    public void flush() {
+        out.flush();
+    }
+}
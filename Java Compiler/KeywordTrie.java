@@ -0,0 +1,84 @@
+import java.util.Arrays;
+
+public final class KeywordTrie {
+    private static final int ALPHABET = 26;
+
+    // Built once per JVM; never modified after class initialization
+    private static final KeywordTrie INSTANCE = new KeywordTrie(
+        new String[] { "print", "if", "else", "while", "int", "for", "boolean", "string", "true", "false" },
+        new TokenType[] { TokenType.PRINT, TokenType.IF, TokenType.ELSE, TokenType.WHILE, TokenType.INT,
+                          TokenType.FOR, TokenType.BOOLEAN, TokenType.STRING, TokenType.BOOLEAN_VAL, TokenType.BOOLEAN_VAL });
+
+    // next[node * ALPHABET + letter] is the child node, or 0 if there is none (node 0 is the root)
+    private final int[] next;
+    // Index into keywords/types for nodes that end a keyword, or -1
+    private final int[] accept;
+    private final String[] keywords;
+    private final TokenType[] types;
+
+    private KeywordTrie(String[] keywords, TokenType[] types) {
+        int maxNodes = 1;
+        for (String keyword : keywords) {
+            maxNodes += keyword.length();
+        }
+
+        int[] next = new int[maxNodes * ALPHABET];
+        int[] accept = new int[maxNodes];
+        Arrays.fill(accept, -1);
+        int nodes = 1;
+
+        for (int k = 0; k < keywords.length; k++) {
+            String keyword = keywords[k];
+            int node = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                int slot = node * ALPHABET + (keyword.charAt(i) - 'a');
+                if (next[slot] == 0) {
+                    next[slot] = nodes++;
+                }
+                node = next[slot];
+            }
+            accept[node] = k;
+        }
+
+        this.next = next;
+        this.accept = accept;
+        this.keywords = keywords;
+        this.types = types;
+    }
+
+    public static KeywordTrie getInstance() {
+        return INSTANCE;
+    }
+
+    // Returns the keyword index for the shortest keyword starting at start, or -1 if none matches.
+    // No keyword is a prefix of another, so the shortest match is the only match.
+    public int match(CharSequence input, int start, int end) {
+        int node = 0;
+        for (int i = start; i < end; i++) {
+            int letter = input.charAt(i) - 'a';
+            if (letter < 0 || letter >= ALPHABET) {
+                return -1;
+            }
+            node = next[node * ALPHABET + letter];
+            if (node == 0) {
+                return -1;
+            }
+            if (accept[node] >= 0) {
+                return accept[node];
+            }
+        }
+        return -1;
+    }
+
+    public String keyword(int index) {
+        return keywords[index];
+    }
+
+    public TokenType type(int index) {
+        return types[index];
+    }
+
+    public int length(int index) {
+        return keywords[index].length();
+    }
+}
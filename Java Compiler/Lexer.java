@@ -4,189 +4,340 @@ import java.util.HashSet;
 import java.util.Scanner;
 import java.util.Set;
 
-public class Lexer {
-    private String input;
+public class Lexer implements TokenStream {
+    private static final KeywordTrie KEYWORDS = KeywordTrie.getInstance();
+    private static final String[] SINGLE_CHARS = new String[128];
+
+    static {
+        for (char c = 0; c < SINGLE_CHARS.length; c++) {
+            SINGLE_CHARS[c] = String.valueOf(c);
+        }
+    }
+
+    private CharSequence input;
     private int pos;
     private int length;
-    List<String> errors;
-    List<String> warnings;
+    // Fragment lexers stop at the first token boundary at or past limit and never add the
+    // trailing '$'; a whole-input lexer has limit == length
+    private int limit;
+    private boolean fragment;
+    // Interns ID tokens as they are lexed when set
+    private SymbolInterner symbols;
+    private List<String> errors;
+    private List<String> warnings;
     private int line = 1;
-
-    public Lexer(String input) {
+    private int lineStart = 0;
+    // Whether string bodies are skipped with FastScan.stringStop; a per-character loop is
+    // quicker for String input, where literals are short and there is no word-at-a-time scan
+    private boolean bulkStrings;
+
+    // Streaming state: one token of lookahead plus the rest of the identifier run being split
+    private Token lookahead;
+    private int identifierEnd;
+    private TokenType lastType;
+    private boolean stopped;
+    private boolean finished;
+
+    // The token most recently produced by lex()
+    private TokenType tokenType;
+    private int tokenStart;
+    private int tokenLength;
+    private int tokenLine;
+    private int tokenColumn;
+    private int tokenSymbol;
+
+    public Lexer(CharSequence input) {
         this.input = input;
         this.length = input.length();
+        this.bulkStrings = FastScan.ENABLED && input instanceof MappedSource;
         this.pos = 0;
+        this.limit = length;
         this.errors = new ArrayList<>();
         this.warnings = new ArrayList<>();
     }
 
+    public Lexer(CharSequence input, SymbolInterner symbols) {
+        this(input);
+        this.symbols = symbols;
+    }
+
+    // Lexes input[start, limit) as a fragment, starting on line 'line', which begins at lineStart.
+    // Tokens that straddle limit are finished, so the fragment can end past it.
+    Lexer(CharSequence input, int start, int line, int lineStart, int limit) {
+        this(input);
+        this.pos = start;
+        this.line = line;
+        this.lineStart = lineStart;
+        this.limit = limit;
+        this.fragment = true;
+    }
+
     public List<Token> tokenize() {
         List<Token> tokens = new ArrayList<>();
+        Token token;
 
-        while (pos < length) {
-            char current = input.charAt(pos);
+        while ((token = nextToken()) != null) {
+            tokens.add(token);
+        }
 
-            if (Character.isWhitespace(current)) {
-                if (current == '\n') {
-                    line++;
-                }
-                pos++;
-                continue;
-            }
+        return tokens;
+    }
 
-            // single-line comments
-            if (current == '/' && pos + 1 < length && input.charAt(pos + 1) == '/') {
-                pos += 2;
-                while (pos < length && input.charAt(pos) != '\n') {
-                    pos++;
-                }
-                continue;
-            }
+    // Lexes the rest of the input into a compact buffer without creating Token objects
+    public TokenBuffer tokenizeBuffer() {
+        TokenBuffer tokens = new TokenBuffer(input);
 
-            // multi-line comments
-            if (current == '/' && pos + 1 < length && input.charAt(pos + 1) == '*') {
-                pos += 2;
-                while (pos < length) {
-                    if (input.charAt(pos) == '*' && pos + 1 < length && input.charAt(pos + 1) == '/') {
-                        pos += 2;
-                        break;
-                    }
-                    if (input.charAt(pos) == '\n') {
-                        line++;
-                    }
-                    pos++;
-                }
-                continue;
-            }
-            
-            if (Character.isLetter(current)) {
-                String identifier = readIdentifier();
-                tokens.addAll(processIdentifier(identifier));
-                continue;
+        if (lookahead != null) {
+            tokens.add(tokenType, tokenStart, tokenLength, tokenLine, tokenColumn, tokenSymbol);
+            lookahead = null;
+        }
+        while (!finished) {
+            if (lex()) {
+                tokens.add(tokenType, tokenStart, tokenLength, tokenLine, tokenColumn, tokenSymbol);
+            } 
+            else {
+                finished = true;
             }
+        }
 
-            if (Character.isDigit(current)) {
-                tokens.add(new Token(TokenType.DIGIT, String.valueOf(current), line));
-                pos++;
-                continue;
-            }
+        return tokens;
+    }
 
-            if (current == '"') {
-                String string = readString();
-                tokens.add(new Token(TokenType.CHAR, string, line));
-                continue;
+    // Where a fragment lexer stopped, for ParallelLexer to check against the next fragment
+    int position() {
+        return pos;
+    }
+
+    int line() {
+        return line;
+    }
+
+    int lineStart() {
+        return lineStart;
+    }
+
+    boolean isStopped() {
+        return stopped;
+    }
+
+    @Override
+    public Token nextToken() {
+        Token token = peek();
+        lookahead = null;
+        return token;
+    }
+
+    @Override
+    public Token peek() {
+        if (lookahead == null && !finished) {
+            if (lex()) {
+                lookahead = new Token(tokenType, input, tokenStart, tokenLength, tokenLine, tokenColumn, tokenSymbol);
+            } 
+            else {
+                finished = true;
             }
+        }
+        return lookahead;
+    }
 
-            if (current == '=' || current == '!') {
-                if (pos + 1 < length) {
-                    char next = input.charAt(pos + 1);
-                    if (current == '=' && next == '=') {
-                        // Handle '=='
-                        tokens.add(new Token(TokenType.BOOLEAN_OP, "==", line));
-                        pos += 2;
-                        continue;
+    private boolean emit(TokenType type, int start, int length) {
+        return emit(type, start, length, start - lineStart + 1);
+    }
+
+    private boolean emit(TokenType type, int start, int length, int column) {
+        tokenType = type;
+        tokenStart = start;
+        tokenLength = length;
+        tokenLine = line;
+        tokenColumn = column;
+        tokenSymbol = -1;
+        lastType = type;
+        return true;
+    }
+
+    private void newLine(int next) {
+        line++;
+        lineStart = next;
+    }
+
+    // Lexes a single token into the token fields. Returns false once the input (and the
+    // trailing '$' check) is done.
+    private boolean lex() {
+        if (pos < identifierEnd) {
+            return identifierToken();
+        }
+
+        while (!stopped && pos < limit) {
+            char current = input.charAt(pos);
+
+            switch (ScannerTables.classify(current)) {
+                case ScannerTables.NEWLINE:
+                    newLine(pos + 1);
+                    pos++;
+                    continue;
+
+                case ScannerTables.SPACE:
+                    // Most gaps are a single space; only runs are worth the bulk skip
+                    if (pos + 1 < limit && FastScan.isAsciiWhitespace(input.charAt(pos + 1))) {
+                        skipWhitespace();
                     }
-                    if (current == '!' && next == '=') {
-                        // Handle '!='
-                        tokens.add(new Token(TokenType.BOOLEAN_OP, "!=", line));
-                        pos += 2;
+                    else {
+                        pos++;
+                    }
+                    continue;
+
+                case ScannerTables.SLASH:
+                    if (skipComment()) {
                         continue;
                     }
+                    break;
+
+                case ScannerTables.LETTER: {
+                    int start = pos;
+                    skipIdentifier();
+                    identifierEnd = pos;
+                    pos = start;
+                    return identifierToken();
                 }
-                tokens.add(new Token(TokenType.ASSIGN, String.valueOf(current), line));
-                pos++;
-                continue;
-            }
 
-            TokenType operatorType = getOperatorType(current);
-            if (operatorType != TokenType.UNKNOWN) {
-                tokens.add(new Token(operatorType, String.valueOf(current), line));
-                pos++;
-                continue;
-            }
+                case ScannerTables.DIGIT:
+                    pos++;
+                    return emit(TokenType.DIGIT, pos - 1, 1);
+
+                case ScannerTables.QUOTE: {
+                    // A comment inside the string can move lineStart, so take the column first
+                    int start = pos + 1;
+                    int column = start - lineStart + 1;
+                    int end = readString();
+                    return emit(TokenType.CHAR, start, end - start, column);
+                }
 
-            if (current != '$') {
-                tokens.add(new Token(TokenType.UNKNOWN, String.valueOf(current), line));
-                errors.add("Unknown token '" + current + "' at line " + line);
-                break;
-            } 
-            else {
-                tokens.add(new Token(TokenType.EOF, "$", line));
-                pos++;
+                case ScannerTables.OPERATOR:
+                    return operatorToken();
+
+                default:
+                    break;
             }
 
-            tokens.add(new Token(TokenType.UNKNOWN, String.valueOf(current), line));
-            pos++;
+            errors.add("Unknown token '" + current + "' at line " + line);
+            stopped = true;
+            return emit(TokenType.UNKNOWN, pos, 1);
+        }
+
+        if (fragment) {
+            return false;
         }
 
-        if (tokens.isEmpty() || tokens.get(tokens.size() - 1).getType() != TokenType.EOF) {
+        if (lastType != TokenType.EOF) {
             warnings.add("Warning: Missing '$' at the end of the code. Automatically adding '$'.");
-            tokens.add(new Token(TokenType.EOF, "$", line));
+            // Not in the source, so the token has an empty span
+            return emit(TokenType.EOF, pos, 0);
         }
 
-        return tokens;
+        return false;
     }
 
-    private List<Token> processIdentifier(String identifier) {
-        List<Token> tokens = new ArrayList<>();
-        int start = 0;
-
-        while (start < identifier.length()) {
-            boolean matchedKeyword = false;
+    // Splits the identifier run at pos greedily: a keyword wherever one begins, otherwise a
+    // single-character ID
+    private boolean identifierToken() {
+        int start = pos;
+        int keyword = KEYWORDS.match(input, pos, identifierEnd);
 
-            for (String keyword : getKeywords()) {
-                if (identifier.startsWith(keyword, start)) {
-                    tokens.add(new Token(getKeywordOrIdentifierType(keyword), keyword, line));
-                    start += keyword.length();
-                    matchedKeyword = true;
-                    break;
-                }
-            }
+        if (keyword >= 0) {
+            pos += KEYWORDS.length(keyword);
+            return emit(KEYWORDS.type(keyword), start, pos - start);
+        }
 
-            if (!matchedKeyword) {
-                tokens.add(new Token(TokenType.ID, String.valueOf(identifier.charAt(start)), line));
-                start++;
-            }
+        pos++;
+        emit(TokenType.ID, start, 1);
+        if (symbols != null) {
+            tokenSymbol = symbols.intern(input, start, 1);
         }
+        return true;
+    }
 
-        return tokens;
+    private void skipIdentifier() {
+        while (pos < length && ScannerTables.isIdentifierPart(input.charAt(pos))) {
+            pos++;
+        }
     }
 
-    /*private boolean isKeywordStart(String part) {
-        for (String keyword : getKeywords()) {
-            if (keyword.startsWith(part)) {
-                return true;
+    // Runs the operator DFA from pos and takes the longest operator it accepts
+    private boolean operatorToken() {
+        int start = pos;
+        int state = 0;
+        int end = start;
+        TokenType type = null;
+
+        for (int i = start; i < length; i++) {
+            char current = input.charAt(i);
+            if (current >= ScannerTables.ASCII) {
+                break;
+            }
+            state = ScannerTables.OPERATOR_NEXT[state * ScannerTables.ASCII + current];
+            if (state == 0) {
+                break;
+            }
+            if (ScannerTables.OPERATOR_ACCEPT[state] != null) {
+                type = ScannerTables.OPERATOR_ACCEPT[state];
+                end = i + 1;
             }
         }
-        return false;
-    }*/
 
-    private List<String> getKeywords() {
-        List<String> keywords = new ArrayList<>();
-        for (TokenType type : TokenType.values()) {
-            if (type != TokenType.ID && type != TokenType.UNKNOWN) {
-                // keywords.add(type.name().toLowerCase());
-                keywords.add("print");
-                keywords.add("if");
-                keywords.add("else");
-                keywords.add("while");
-                keywords.add("int");
-                keywords.add("for");
-                keywords.add("boolean");
-                keywords.add("string");
-                keywords.add("true");
-                keywords.add("false");
-            }
+        pos = end;
+        return emit(type, start, end - start);
+    }
+
+    // Skips the whitespace at pos and any whitespace following it
+    private void skipWhitespace() {
+        int end = FastScan.whitespaceEnd(input, pos + 1, limit);
+        countLines(pos, end);
+        pos = end;
+    }
+
+    // Accounts for the line breaks in input[from, to), which the caller is skipping over
+    private void countLines(int from, int to) {
+        int lines = FastScan.count(input, '\n', from, to);
+        if (lines > 0) {
+            line += lines - 1;
+            newLine(FastScan.lastIndexOf(input, '\n', from, to) + 1);
         }
-        return keywords;
     }
 
-    private String readIdentifier() {
-        int start = pos;
-        while (pos < length && (Character.isLetterOrDigit(input.charAt(pos)) || input.charAt(pos) == '_')) {
-            pos++;
+    // Skips a comment starting at the '/' at pos. Returns false, leaving pos alone, if the '/'
+    // does not start one.
+    private boolean skipComment() {
+        if (pos + 1 >= length) {
+            return false;
         }
-        return input.substring(start, pos);
+
+        // single-line comments
+        if (input.charAt(pos + 1) == '/') {
+            pos = FastScan.indexOf(input, '\n', pos + 2, length);
+            return true;
+        }
+
+        // multi-line comments
+        if (input.charAt(pos + 1) == '*') {
+            int end = length;
+            int from = pos + 2;
+            while (from < length) {
+                int star = FastScan.indexOf(input, '*', from, length);
+                if (star + 1 >= length) {
+                    break;
+                }
+                if (input.charAt(star + 1) == '/') {
+                    end = star + 2;
+                    break;
+                }
+                from = star + 1;
+            }
+            countLines(pos + 2, end);
+            pos = end;
+            return true;
+        }
+
+        return false;
     }
 
     /*private String readNumber() {
@@ -197,108 +348,124 @@ public class Lexer {
         return input.substring(start, pos);
     }*/
 
-    private String readString() {
+    // Returns the end of the string body; the value is rebuilt from the span by stringValue
+    private int readString() {
         pos++; // Skip the opening quote
         int start = pos;
         boolean hasNumber = false;
-        StringBuilder result = new StringBuilder();
     
         while (pos < length && input.charAt(pos) != '"') {
+            if (bulkStrings) {
+                // Jump ahead to the next character that is not plain string content
+                int stop = FastScan.stringStop(input, pos, length);
+                hasNumber |= containsDigit(pos, stop);
+                pos = stop;
+                if (pos >= length || input.charAt(pos) == '"') {
+                    break;
+                }
+            }
+
             char current = input.charAt(pos);
+            if (!bulkStrings && ScannerTables.classify(current) == ScannerTables.DIGIT) {
+                hasNumber = true;
+            }
     
             if (current == '\n') {
                 errors.add("Line break found in a string at line " + line + ", position " + start);
                 break; 
             }
 
-            // digits
-            if (Character.isDigit(current)) {
-                hasNumber = true;
+            // comments
+            if (current == '/' && skipComment()) {
+                continue;
             }
     
-            // single-line comments
-            if (current == '/' && pos + 1 < length && input.charAt(pos + 1) == '/') {
+            pos++;
+        }
+        int end = pos;
+    
+        if (hasNumber) {
+            errors.add("Numbers are not allowed in a string at line " + line + ", position " + start);
+        }
+    
+        pos++; 
+        return end;
+    }    
+
+    private boolean containsDigit(int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (ScannerTables.classify(input.charAt(i)) == ScannerTables.DIGIT) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Resolves the value of a token from its source span
+    static String value(CharSequence input, TokenType type, int start, int length) {
+        switch (type) {
+            case EOF:
+                return "$";
+            case CHAR:
+                return stringValue(input, start, start + length);
+            case BOOLEAN_OP:
+                return input.charAt(start) == '=' ? "==" : "!=";
+            default:
+                if (length == 1) {
+                    char current = input.charAt(start);
+                    return current < SINGLE_CHARS.length ? SINGLE_CHARS[current] : String.valueOf(current);
+                }
+                int keyword = KEYWORDS.match(input, start, start + length);
+                return keyword >= 0 ? KEYWORDS.keyword(keyword) : input.subSequence(start, start + length).toString();
+        }
+    }
+
+    // A string's value is its body with any comments inside it left out, as readString skips them
+    private static String stringValue(CharSequence input, int start, int end) {
+        if (!containsSlash(input, start, end)) {
+            return input.subSequence(start, end).toString();
+        }
+
+        StringBuilder result = new StringBuilder(end - start);
+        int pos = start;
+
+        while (pos < end) {
+            char current = input.charAt(pos);
+
+            if (current == '/' && pos + 1 < end && input.charAt(pos + 1) == '/') {
                 pos += 2;
-                while (pos < length && input.charAt(pos) != '\n') {
+                while (pos < end && input.charAt(pos) != '\n') {
                     pos++;
                 }
-                continue; 
+                continue;
             }
-    
-            // multi-line comments
-            if (current == '/' && pos + 1 < length && input.charAt(pos + 1) == '*') {
+
+            if (current == '/' && pos + 1 < end && input.charAt(pos + 1) == '*') {
                 pos += 2;
-                while (pos < length) {
-                    if (input.charAt(pos) == '*' && pos + 1 < length && input.charAt(pos + 1) == '/') {
+                while (pos < end) {
+                    if (input.charAt(pos) == '*' && pos + 1 < end && input.charAt(pos + 1) == '/') {
                         pos += 2;
                         break;
                     }
-                    if (input.charAt(pos) == '\n') {
-                        line++;
-                    }
                     pos++;
                 }
                 continue;
             }
-    
+
             result.append(current);
             pos++;
         }
-    
-        if (hasNumber) {
-            errors.add("Numbers are not allowed in a string at line " + line + ", position " + start);
-        }
-    
-        pos++; 
-        return result.toString();
-    }    
 
-    private TokenType getKeywordOrIdentifierType(String identifier) {
-        switch (identifier) {
-            case "print":
-                return TokenType.PRINT;
-            case "if":
-                return TokenType.IF;
-            case "else":
-                return TokenType.ELSE;
-            case "while":
-                return TokenType.WHILE;
-            case "int":
-                return TokenType.INT;
-            case "for":
-                return TokenType.FOR;
-            case "boolean":
-                return TokenType.BOOLEAN;
-            case "string":
-                return TokenType.STRING;
-            case "true":
-                return TokenType.BOOLEAN_VAL;
-            case "false":
-                return TokenType.BOOLEAN_VAL;
-            default:
-                return TokenType.ID;
-        }
+        return result.toString();
     }
 
-    private TokenType getOperatorType(char current) {
-        switch (current) {
-            case '+':
-                return TokenType.INT_OP;
-            case '=':
-                return TokenType.ASSIGN;
-            case '(':
-                return TokenType.LEFT_PARENTHESIS;
-            case ')':
-                return TokenType.RIGHT_PARENTHESIS;
-            case '{':
-                return TokenType.LEFT_BRACE;
-            case '}':
-                return TokenType.RIGHT_BRACE;
-            case '$':
-                return TokenType.EOF;
-            default:
-                return TokenType.UNKNOWN;
+    private static boolean containsSlash(CharSequence input, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (input.charAt(i) == '/') {
+                return true;
+            }
         }
+        return false;
     }
 
     public List<String> getErrors() {
@@ -0,0 +1,20 @@
+import java.util.List;
+
+public class ListTokenStream implements TokenStream {
+    private List<Token> tokens;
+    private int position = 0;
+
+    public ListTokenStream(List<Token> tokens) {
+        this.tokens = tokens;
+    }
+
+    @Override
+    public Token nextToken() {
+        return position < tokens.size() ? tokens.get(position++) : null;
+    }
+
+    @Override
+    public Token peek() {
+        return position < tokens.size() ? tokens.get(position) : null;
+    }
+}
@@ -1,11 +1,182 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.ObjIntConsumer;
 
 public class Main {
+    // Set by --parallel; null means programs run one after another on the main thread
+    private static ParallelDriver driver;
+    // Set by --parallel-lex; programs longer than this are lexed in chunks of this many chars
+    private static int lexChunkSize;
+    // Set by --fused; parse, build the CST and build the AST in one pass with FrontEnd
+    private static boolean fused;
+    // Set by --arena; build the AST into an ASTArena instead of node objects
+    private static boolean arena;
+    // Set by --parse-stats; totals of every program's per-production counts and times
+    private static CountingParseListener parseStats;
+    // Set by --emit; "text" is the human-readable output, "binary" and "json" are ArtifactEmitters
+    private static String emitFormat = "text";
+    // Set by --cache; with --cache-size, the bound on its size in bytes
+    private static CompilationCache cache;
+    // Where programs run on the main thread are printed
+    private static ProgramOutput output;
+
     public static void main(String[] args) {
+        String file = null;
+        int threads = 0;
+        String cacheDirectory = null;
+        long cacheSize = CompilationCache.DEFAULT_MAX_BYTES;
+        boolean allocation = false;
+        boolean retained = false;
+        List<String> allocationBudgets = new ArrayList<>();
+
+        for (String arg : args) {
+            if (arg.equals("--parallel")) {
+                threads = Runtime.getRuntime().availableProcessors();
+            } 
+            else if (arg.startsWith("--parallel=")) {
+                threads = Integer.parseInt(arg.substring("--parallel=".length()));
+            } 
+            else if (arg.equals("--parallel-lex")) {
+                lexChunkSize = ParallelLexer.DEFAULT_CHUNK_SIZE;
+            } 
+            else if (arg.startsWith("--parallel-lex=")) {
+                lexChunkSize = Integer.parseInt(arg.substring("--parallel-lex=".length()));
+            } 
+            else if (arg.equals("--fused")) {
+                fused = true;
+            } 
+            else if (arg.equals("--arena")) {
+                arena = true;
+            } 
+            else if (arg.startsWith("--emit=")) {
+                emitFormat = arg.substring("--emit=".length());
+                // Fail on an unknown format before any input is read
+                try {
+                    ArtifactEmitter.forFormat(emitFormat, System.out);
+                } 
+                catch (IllegalArgumentException e) {
+                    System.err.println("Error: " + e.getMessage());
+                    System.exit(1);
+                }
+            } 
+            else if (arg.startsWith("--cache=")) {
+                cacheDirectory = arg.substring("--cache=".length());
+            } 
+            else if (arg.startsWith("--cache-size=")) {
+                cacheSize = Long.parseLong(arg.substring("--cache-size=".length()));
+            } 
+            else if (arg.equals("--parse-stats")) {
+                parseStats = new CountingParseListener();
+            } 
+            else if (arg.equals("--metrics")) {
+                PhaseEvent.metrics = new PhaseMetrics();
+            } 
+            else if (arg.equals("--alloc")) {
+                allocation = true;
+            } 
+            else if (arg.equals("--alloc-retained")) {
+                allocation = true;
+                retained = true;
+            } 
+            else if (arg.startsWith("--alloc-budget=")) {
+                allocation = true;
+                allocationBudgets.add(arg.substring("--alloc-budget=".length()));
+            } 
+            else {
+                file = arg;
+            }
+        }
+
+        if (cacheDirectory != null) {
+            // The text output has the program number all through it and the parse trace, which
+            // is not an artifact, so only the emitted formats are cached
+            if (emitFormat.equals("text")) {
+                System.err.println("Error: --cache needs --emit=binary or --emit=json");
+                System.exit(1);
+            }
+            try {
+                cache = new CompilationCache(Paths.get(cacheDirectory), cacheSize);
+            } 
+            catch (IOException e) {
+                System.err.println("Error: Cannot open cache " + cacheDirectory + ": " + e.getMessage());
+                System.exit(1);
+            }
+        }
+
+        if (allocation) {
+            // The heap is shared, so what is live only says something about one program at a time
+            if (retained && threads > 0) {
+                System.err.println("Error: --alloc-retained cannot be used with --parallel");
+                System.exit(1);
+            }
+            PhaseEvent.allocation = new AllocationMetrics(retained);
+            try {
+                for (String budget : allocationBudgets) {
+                    PhaseEvent.allocation.setBudget(budget);
+                }
+            } 
+            catch (IllegalArgumentException e) {
+                System.err.println("Error: " + e.getMessage());
+                System.exit(1);
+            }
+        }
+
+        if (threads > 0) {
+            driver = new ParallelDriver(threads, System.out);
+        } 
+        else {
+            output = output(System.out);
+        }
+
+        boolean withinBudget = true;
+
+        try {
+            if (file != null) {
+                try {
+                    processFile(MappedSource.map(Paths.get(file)));
+                } 
+                catch (IOException e) {
+                    System.err.println("Error: Cannot read " + file + ": " + e.getMessage());
+                    System.exit(1);
+                }
+            } 
+            else {
+                processInput();
+            }
+            // Not in the finally block: after a failure, the programs still pending are dropped
+            if (driver != null) {
+                driver.drain();
+            }
+        } 
+        finally {
+            if (driver != null) {
+                driver.close();
+            }
+            if (parseStats != null) {
+                parseStats.report(System.err);
+            }
+            if (PhaseEvent.metrics != null) {
+                PhaseEvent.metrics.report(System.err);
+            }
+            if (PhaseEvent.allocation != null) {
+                withinBudget = PhaseEvent.allocation.report(System.err);
+            }
+        }
+        if (!withinBudget) {
+            System.exit(1);
+        }
+    }
+
+    private static void processInput() {
         Scanner scanner = new Scanner(System.in);
-        System.out.println("Enter code:");
+        notice("Enter code:");
 
         StringBuilder currentProgram = new StringBuilder();
         int programCount = 1;
@@ -27,7 +198,7 @@ public class Main {
             // Check if line contains `$`
             if (line.contains("$")) {
                 hasDollarSign = true;
-                processProgram(currentProgram.toString(), programCount);
+                runProgram(currentProgram.toString(), programCount);
                 currentProgram.setLength(0);
                 programCount++;
             }
@@ -37,77 +208,358 @@ public class Main {
             String program = currentProgram.toString().trim();
 
             if (!hasDollarSign) {
-                System.out.println("Warning: Missing '$' at the end of the code. Adding '$'...");
+                notice("Warning: Missing '$' at the end of the code. Adding '$'...");
                 program += "$";
             }
 
-            processProgram(program, programCount);
+            runProgram(program, programCount);
         }
 
         scanner.close();
     }
 
-    private static void processProgram(String program, int programCount) {
-        System.out.println("Program " + programCount + ":");
+    // File mode: programs are sliced straight out of the mapped file
+    private static void processFile(CharSequence source) {
+        forEachProgram(source, Main::runProgram,
+                () -> notice("Warning: Missing '$' at the end of the code. Adding '$'..."));
+    }
+
+    // Hands each program in source to run with its number, from 1. Each program ends with the
+    // line that holds its '$'. Unlike stdin mode, lines are passed through verbatim and a blank
+    // line does not end the input. A '$' on a line that starts with "//" does not end a program.
+    // Text after the last program is run too if it is not blank; if source has no '$' at all,
+    // missingDollarSign is called and one is added.
+    static void forEachProgram(CharSequence source, ObjIntConsumer<CharSequence> run, Runnable missingDollarSign) {
+        int length = source.length();
+        int programStart = 0;
+        int programCount = 1;
+        boolean hasDollarSign = false;
+        int lineStart = 0;
+
+        while (lineStart < length) {
+            int pos = lineStart;
+            while (pos < length && source.charAt(pos) != '\n' && Character.isWhitespace(source.charAt(pos))) {
+                pos++;
+            }
+            boolean commentLine = pos + 1 < length && source.charAt(pos) == '/' && source.charAt(pos + 1) == '/';
+
+            boolean dollarSign = false;
+            while (pos < length && source.charAt(pos) != '\n') {
+                if (source.charAt(pos) == '$') {
+                    dollarSign = true;
+                }
+                pos++;
+            }
+            int lineEnd = pos < length ? pos + 1 : pos;
+
+            if (dollarSign && !commentLine) {
+                hasDollarSign = true;
+                run.accept(source.subSequence(programStart, lineEnd), programCount);
+                programCount++;
+                programStart = lineEnd;
+            }
+            lineStart = lineEnd;
+        }
+
+        CharSequence rest = source.subSequence(programStart, length);
+        if (!isBlank(rest)) {
+            if (!hasDollarSign) {
+                missingDollarSign.run();
+                rest = rest.toString().trim() + "$";
+            }
+
+            run.accept(rest, programCount);
+        }
+    }
+
+    private static void runProgram(CharSequence program, int programCount) {
+        if (driver != null) {
+            driver.submit(program, programCount);
+        } 
+        else {
+            processProgram(program, programCount, output);
+        }
+    }
+
+    // Messages from Main itself go to stdout with the text output, but must not end up in the
+    // middle of binary or JSON output
+    private static void notice(String message) {
+        if (emitFormat.equals("text")) {
+            System.out.println(message);
+        } 
+        else {
+            System.err.println(message);
+        }
+    }
 
+    static boolean isBlank(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Output for the format chosen with --emit, to be reused for every program printed to out
+    static ProgramOutput output(PrintStream out) {
+        return new ProgramOutput(emitFormat, out);
+    }
+
+    static void processProgram(CharSequence program, int programCount, ProgramOutput out) {
+        AllocationMetrics allocation = PhaseEvent.allocation;
+        if (allocation == null) {
+            processProgramOutput(program, programCount, out);
+            return;
+        }
+        allocation.startProgram(programCount);
+        try {
+            processProgramOutput(program, programCount, out);
+        } 
+        finally {
+            allocation.finishProgram();
+        }
+    }
+
+    private static void processProgramOutput(CharSequence program, int programCount, ProgramOutput out) {
+        try {
+            if (out.emitter == null) {
+                processProgram(program, programCount, out.sink, out.trace);
+            } 
+            else if (cache != null) {
+                emitCached(program, programCount, out);
+            } 
+            else {
+                emitProgram(program, programCount, out.emitter);
+            }
+        } 
+        finally {
+            // The program's whole output goes out in one flush
+            out.flush();
+        }
+    }
+
+    // Every phase runs before anything is printed, so that the phase events measure only the
+    // phases; the output is then printed as the PRINT phase, and the semantic messages and
+    // symbol table as SYMBOL_TABLE. The parse trace is recorded by trace and printed with the rest.
+    static void processProgram(CharSequence program, int programCount, OutputSink out, TracingParseListener trace) {
         // Lexical Analysis
-        Lexer lexer = new Lexer(program);
-        List<Token> tokens = lexer.tokenize();
+        PhaseEvent lexing = PhaseEvent.start(PhaseEvent.Phase.LEX, programCount);
+        SymbolInterner symbols = new SymbolInterner();
+        List<String> lexErrors = new ArrayList<>();
+        List<String> lexWarnings = new ArrayList<>();
+        TokenBuffer tokens = Compiler.lex(program, symbols, lexChunkSize, ForkJoinPool.commonPool(), lexErrors, lexWarnings);
+        lexing.finish(tokens.size(), null, 0, lexErrors.size());
 
-        for (Token token : tokens) {
-            System.out.println(token);
+        if (!lexErrors.isEmpty()) {
+            PhaseEvent printing = PhaseEvent.start(PhaseEvent.Phase.PRINT, programCount);
+            printTokens(tokens, programCount, out);
+            out.println("Errors:");
+            for (String error : lexErrors) {
+                out.println(error);
+            }
+            printing.finish(tokens.size(), null, 0, 0);
+            return;
+        }
+
+        ParseListener listener = trace;
+        CountingParseListener counter = null;
+        if (parseStats != null) {
+            counter = new CountingParseListener();
+            listener = ParseListener.tee(listener, counter);
         }
 
-        if (!lexer.errors.isEmpty()) {
-            System.out.println("Errors:");
-            for (String error : lexer.errors) {
-                System.out.println(error);
+        if (fused) {
+            PhaseEvent parsing = PhaseEvent.start(PhaseEvent.Phase.FUSED, programCount);
+            FrontEnd frontEnd = new FrontEnd(tokens.cursor(), listener, true, symbols);
+            frontEnd.parse();
+            if (counter != null) {
+                parseStats.merge(counter);
+            }
+            if (frontEnd.getError() != null) {
+                parsing.finish(tokens.size(), null, 0, 1);
+                PhaseEvent printing = PhaseEvent.start(PhaseEvent.Phase.PRINT, programCount);
+                printParse(tokens, lexWarnings, trace, programCount, out);
+                printing.finish(tokens.size(), null, 0, 0);
+                return;
             }
+            SemanticChecker checker = frontEnd.getChecker();
+            parsing.finish(tokens.size(), () -> frontEnd.getCst().countNodes() + frontEnd.getAst().countNodes(),
+                    checker.getSymbolTable().getEntries().size(), checker.getErrors().size());
+
+            PhaseEvent printing = PhaseEvent.start(PhaseEvent.Phase.PRINT, programCount);
+            printParse(tokens, lexWarnings, trace, programCount, out);
+            out.println("CST for program " + programCount);
+            frontEnd.getCst().print(out, 0);
+            out.println("AST for program " + programCount);
+            frontEnd.getAst().print(out, 0);
+            printing.finish(tokens.size(), null, 0, 0);
+            printSemantics(checker.getErrors(), checker.getWarnings(), checker.getSymbolTable(), programCount,
+                    tokens.size(), out);
+            return;
+        }
+
+        // Parsing
+        PhaseEvent parsing = PhaseEvent.start(PhaseEvent.Phase.PARSE, programCount);
+        Parser parser = new Parser(tokens.cursor(), listener);
+        parser.parse();
+        if (counter != null) {
+            parseStats.merge(counter);
+        }
+        parsing.finish(tokens.size(), null, 0, parser.getError() == null ? 0 : 1);
+        if (parser.getError() != null) {
+            PhaseEvent printing = PhaseEvent.start(PhaseEvent.Phase.PRINT, programCount);
+            printParse(tokens, lexWarnings, trace, programCount, out);
+            printing.finish(tokens.size(), null, 0, 0);
+            return;
+        }
+
+        // CST Building
+        PhaseEvent cstBuilding = PhaseEvent.start(PhaseEvent.Phase.CST, programCount);
+        ProgramNode cstProgram = new CSTBuilder(tokens.cursor()).parseProgram();
+        cstBuilding.finish(tokens.size(), cstProgram::countNodes, 0, 0);
+
+        // AST Building
+        PhaseEvent astBuilding = PhaseEvent.start(PhaseEvent.Phase.AST, programCount);
+        if (arena) {
+            ASTArenaBuilder builder = new ASTArenaBuilder(tokens, symbols);
+            ASTArena astArena = builder.build();
+            astBuilding.finish(tokens.size(), astArena::size, builder.getSymbolTable().getEntries().size(),
+                    builder.getErrors().size());
+
+            PhaseEvent printing = PhaseEvent.start(PhaseEvent.Phase.PRINT, programCount);
+            printParse(tokens, lexWarnings, trace, programCount, out);
+            printCst(cstProgram, programCount, out);
+            out.println("AST for program " + programCount);
+            astArena.print(out);
+            printing.finish(tokens.size(), null, 0, 0);
+            printSemantics(builder.getErrors(), builder.getWarnings(), builder.getSymbolTable(), programCount,
+                    tokens.size(), out);
         } 
         else {
-            if (!lexer.warnings.isEmpty()) {
-                System.out.println("Warnings:");
-                for (String warning : lexer.warnings) {
-                    System.out.println(warning);
-                }
+            AST ast = new AST(tokens.cursor(), symbols);
+            ProgramASTNode astProgram = ast.Program();
+            astBuilding.finish(tokens.size(), astProgram::countNodes, ast.getSymbolTable().getEntries().size(),
+                    ast.getErrors().size());
+
+            PhaseEvent printing = PhaseEvent.start(PhaseEvent.Phase.PRINT, programCount);
+            printParse(tokens, lexWarnings, trace, programCount, out);
+            printCst(cstProgram, programCount, out);
+            out.println("AST for program " + programCount);
+            astProgram.print(out, 0);
+            printing.finish(tokens.size(), null, 0, 0);
+            printSemantics(ast.getErrors(), ast.getWarnings(), ast.getSymbolTable(), programCount, tokens.size(), out);
+        }
+    }
+
+    private static void printTokens(TokenBuffer tokens, int programCount, OutputSink out) {
+        out.println("Program " + programCount + ":");
+        for (int i = 0; i < tokens.size(); i++) {
+            out.printToken(tokens, i);
+        }
+    }
+
+    // Everything up to the end of the parse trace, for a program that lexed without errors
+    private static void printParse(TokenBuffer tokens, List<String> lexWarnings, TracingParseListener trace,
+                                   int programCount, OutputSink out) {
+        printTokens(tokens, programCount, out);
+        if (!lexWarnings.isEmpty()) {
+            out.println("Warnings:");
+            for (String warning : lexWarnings) {
+                out.println(warning);
             }
+        }
+        out.println("Parser for program " + programCount);
+        trace.print(out);
+    }
 
-            // Parsing
-            Parser parser = new Parser(tokens);
-            System.out.println("Parser for program " + programCount);
-            parser.parse();
-
-            if (parser.error == null) {
-                // CST Building
-                CSTBuilder cstBuilder = new CSTBuilder(tokens);
-                System.out.println("CST for program " + programCount);
-                ProgramNode cstProgram = cstBuilder.parseProgram();
-                cstProgram.print("");
-
-                // AST Building
-                AST ast = new AST(tokens);
-                ProgramASTNode astProgram = ast.Program();
-                System.out.println("AST for program " + programCount);
-                astProgram.print("");
-
-                if (!ast.getErrors().isEmpty()) {
-                    System.out.println("Errors:");
-                    for (String error : ast.getErrors()) {
-                        System.out.println(error);
-                    }
-                } 
-                else if (!ast.getWarnings().isEmpty()) {
-                    System.out.println("Warnings:");
-                    for (String warning : ast.getWarnings()) {
-                        System.out.println(warning);
-                    }
-                    System.out.println("Symbol table for program " + programCount);
-                    ast.getSymbolTable().printSymbolTable();
-                }
-                else {
-                    ast.getSymbolTable().printSymbolTable();
-                }
+    private static void printCst(ProgramNode cstProgram, int programCount, OutputSink out) {
+        out.println("CST for program " + programCount);
+        cstProgram.print(out, 0);
+    }
+
+    // The --emit=binary and --emit=json path: the same phases as processProgram, without the
+    // parse trace, with every artifact handed to emitter
+    static void emitProgram(CharSequence program, int programCount, ArtifactEmitter emitter) {
+        compile(program, programCount).emit(emitter, programCount);
+    }
+
+    // emitProgram through the cache. An entry is what the emitter writes after beginProgram, so
+    // a hit is the program header followed by the entry's bytes, copied to out as they are.
+    private static void emitCached(CharSequence program, int programCount, ProgramOutput out) {
+        byte[] artifacts = cache.get(CompilationCache.key(emitFormat, program), () -> {
+            ArtifactEmitter capture = out.startCapture();
+            ByteArrayOutputStream buffer = out.captureBuffer();
+            capture.beginProgram(programCount);
+            capture.flush();
+            int header = buffer.size();
+            compile(program, programCount).emitArtifacts(capture);
+            capture.flush();
+            return Arrays.copyOfRange(buffer.toByteArray(), header, buffer.size());
+        });
+
+        out.emitter.beginProgram(programCount);
+        out.emitter.flush();
+        out.out.write(artifacts, 0, artifacts.length);
+    }
+
+    private static CompilationResult compile(CharSequence program, int programCount) {
+        PhaseEvent compiling = PhaseEvent.start(PhaseEvent.Phase.COMPILE, programCount);
+        Compiler.Options options = Compiler.Options.DEFAULTS
+                .withParallelLex(lexChunkSize, ForkJoinPool.commonPool())
+                .withArena(arena);
+        CountingParseListener counter = null;
+        if (parseStats != null) {
+            counter = new CountingParseListener();
+            options = options.withListener(counter);
+        }
+
+        CompilationResult result = Compiler.compile(program, options);
+        if (counter != null) {
+            parseStats.merge(counter);
+        }
+        int symbolCount = result.getSymbols() == null ? 0 : result.getSymbols().size();
+        compiling.finish(result.getTokens().size(), () -> countNodes(result), symbolCount, errorCount(result));
+        return result;
+    }
+
+    // Nodes in the CST and AST of result, or 0 if it stopped before building them
+    private static int countNodes(CompilationResult result) {
+        int nodes = result.getCst() != null ? result.getCst().countNodes() : 0;
+        if (result.getAstArena() != null) {
+            nodes += result.getAstArena().size();
+        } 
+        else if (result.getAst() != null) {
+            nodes += result.getAst().countNodes();
+        }
+        return nodes;
+    }
+
+    private static int errorCount(CompilationResult result) {
+        int errors = result.getLexErrors().size() + (result.getParseError() != null ? 1 : 0);
+        return result.getSemanticErrors() != null ? errors + result.getSemanticErrors().size() : errors;
+    }
+
+    private static void printSemantics(List<String> errors, List<String> warnings, SymbolTable symbolTable,
+                                       int programCount, int tokenCount, OutputSink out) {
+        PhaseEvent printing = PhaseEvent.start(PhaseEvent.Phase.SYMBOL_TABLE, programCount);
+        if (!errors.isEmpty()) {
+            out.println("Errors:");
+            for (String error : errors) {
+                out.println(error);
             }
+        } 
+        else if (!warnings.isEmpty()) {
+            out.println("Warnings:");
+            for (String warning : warnings) {
+                out.println(warning);
+            }
+            out.println("Symbol table for program " + programCount);
+            symbolTable.printSymbolTable(out);
+        }
+        else {
+            symbolTable.printSymbolTable(out);
         }
+        printing.finish(tokenCount, null, symbolTable.getEntries().size(), errors.size());
     }
 }
\ No newline at end of file
@@ -0,0 +1,175 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Read-only ASCII view over a byte buffer, normally a memory-mapped source file.
+// subSequence shares the buffer, so slicing a program out of the file copies nothing.
+public final class MappedSource implements CharSequence {
+    // Word-at-a-time helpers. The buffer is big-endian, so the first byte of a word is its most
+    // significant one.
+    private static final long ONES = 0x0101010101010101L;
+    private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int length;
+
+    public MappedSource(ByteBuffer buffer) {
+        this(buffer.duplicate().order(ByteOrder.BIG_ENDIAN), 0, buffer.limit());
+    }
+
+    private MappedSource(ByteBuffer buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    public static MappedSource map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large to map: " + path + " (" + size + " bytes)");
+            }
+            // The mapping stays valid after the channel is closed
+            return new MappedSource(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+        }
+        return (char) (buffer.get(offset + index) & 0xff);
+    }
+
+    @Override
+    public MappedSource subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+        }
+        return new MappedSource(buffer, offset + start, end - start);
+    }
+
+    // First index of c in [from, to), or to if there is none
+    int indexOf(char c, int from, int to) {
+        if (c > 0xff) {
+            return to;
+        }
+        long pattern = c * ONES;
+        int i = from;
+        for (; i + 8 <= to; i += 8) {
+            long found = zeroBytes(buffer.getLong(offset + i) ^ pattern);
+            if (found != 0) {
+                return i + Long.numberOfLeadingZeros(found) / 8;
+            }
+        }
+        for (; i < to; i++) {
+            if (charAt(i) == c) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    // Last index of c in [from, to), or -1 if there is none
+    int lastIndexOf(char c, int from, int to) {
+        if (c > 0xff) {
+            return -1;
+        }
+        long pattern = c * ONES;
+        int i = to;
+        for (; i - 8 >= from; i -= 8) {
+            long found = zeroBytes(buffer.getLong(offset + i - 8) ^ pattern);
+            if (found != 0) {
+                return i - 1 - Long.numberOfTrailingZeros(found) / 8;
+            }
+        }
+        for (i--; i >= from; i--) {
+            if (charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Number of occurrences of c in [from, to)
+    int count(char c, int from, int to) {
+        if (c > 0xff) {
+            return 0;
+        }
+        long pattern = c * ONES;
+        int count = 0;
+        int i = from;
+        for (; i + 8 <= to; i += 8) {
+            count += Long.bitCount(zeroBytes(buffer.getLong(offset + i) ^ pattern));
+        }
+        for (; i < to; i++) {
+            if (charAt(i) == c) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // End of the run of spaces, tabs, carriage returns and line feeds starting at from
+    int whitespaceEnd(int from, int to) {
+        int i = from;
+        for (; i + 8 <= to; i += 8) {
+            long word = buffer.getLong(offset + i);
+            long blank = zeroBytes(word ^ (' ' * ONES)) | zeroBytes(word ^ ('\t' * ONES))
+                       | zeroBytes(word ^ ('\n' * ONES)) | zeroBytes(word ^ ('\r' * ONES));
+            if (blank != HIGH_BITS) {
+                return i + Long.numberOfLeadingZeros(~blank & HIGH_BITS) / 8;
+            }
+        }
+        for (; i < to; i++) {
+            char c = charAt(i);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    // First quote, line break or slash in [from, to), or to if there is none
+    int stringStop(int from, int to) {
+        int i = from;
+        for (; i + 8 <= to; i += 8) {
+            long word = buffer.getLong(offset + i);
+            long found = zeroBytes(word ^ ('"' * ONES)) | zeroBytes(word ^ ('\n' * ONES)) | zeroBytes(word ^ ('/' * ONES));
+            if (found != 0) {
+                return i + Long.numberOfLeadingZeros(found) / 8;
+            }
+        }
+        for (; i < to; i++) {
+            char c = charAt(i);
+            if (c == '"' || c == '\n' || c == '/') {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    // Sets the high bit of exactly those bytes of x that are zero
+    private static long zeroBytes(long x) {
+        return ~(((x & LOW_BITS) + LOW_BITS) | x | LOW_BITS);
+    }
+
+    @Override
+    public String toString() {
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+}
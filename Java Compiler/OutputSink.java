@@ -0,0 +1,128 @@
+import java.io.BufferedWriter;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+// One buffered writer for everything a program prints: tokens, parse trace, CST, AST and
+// symbol table. Lines end with the platform line separator, as PrintStream.println ends them,
+// and nothing reaches the underlying stream until the buffer fills or flush() is called.
+public class OutputSink implements Flushable {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    // Shared indent table: indent(depth) writes the first 2 * depth of these
+    private static final char[] SPACES = new char[256];
+
+    static {
+        Arrays.fill(SPACES, ' ');
+    }
+
+    private final Writer writer;
+    private final char[] digits = new char[11];
+
+    public OutputSink(OutputStream out) {
+        this(new OutputStreamWriter(out, Charset.defaultCharset()));
+    }
+
+    public OutputSink(WritableByteChannel channel) {
+        this(Channels.newWriter(channel, Charset.defaultCharset()));
+    }
+
+    public OutputSink(Writer writer) {
+        this.writer = writer instanceof BufferedWriter ? writer : new BufferedWriter(writer, BUFFER_SIZE);
+    }
+
+    public OutputSink print(String text) {
+        try {
+            writer.write(text);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return this;
+    }
+
+    public OutputSink print(char c) {
+        try {
+            writer.write(c);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return this;
+    }
+
+    public OutputSink print(int value) {
+        if (value == Integer.MIN_VALUE) {
+            return print(Integer.toString(value));
+        }
+        int pos = digits.length;
+        boolean negative = value < 0;
+        if (negative) {
+            value = -value;
+        }
+        do {
+            digits[--pos] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        if (negative) {
+            digits[--pos] = '-';
+        }
+        return write(digits, pos, digits.length - pos);
+    }
+
+    // Two spaces per level of depth
+    public OutputSink indent(int depth) {
+        int count = depth * 2;
+        while (count > SPACES.length) {
+            write(SPACES, 0, SPACES.length);
+            count -= SPACES.length;
+        }
+        return write(SPACES, 0, count);
+    }
+
+    public OutputSink println() {
+        return print(LINE_SEPARATOR);
+    }
+
+    public OutputSink println(String text) {
+        return print(text).println();
+    }
+
+    public OutputSink println(Object value) {
+        return println(String.valueOf(value));
+    }
+
+    // Same text as tokens.toString(index), written in pieces
+    public OutputSink printToken(TokenBuffer tokens, int index) {
+        print("Token [type=").print(tokens.type(index).toString());
+        print(", value=").print(tokens.value(index));
+        return print(", line=").print(tokens.line(index)).print("]").println();
+    }
+
+    private OutputSink write(char[] chars, int offset, int length) {
+        try {
+            writer.write(chars, offset, length);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return this;
+    }
+
+    @Override
+    public void flush() {
+        try {
+            writer.flush();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
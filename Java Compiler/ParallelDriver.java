@@ -0,0 +1,110 @@
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// Compiles programs on a work-stealing pool. Each worker thread prints into a buffer of its own,
+// each program's bytes are taken out of it when the program is done, and those are copied to
+// the output strictly in submission order, so the output is the same as a sequential run. At
+// most 'window' programs are in flight or waiting to be written. If a program fails, the
+// programs after it are cancelled and nothing more is written.
+public class ParallelDriver implements AutoCloseable {
+    private final ForkJoinPool pool;
+    private final PrintStream out;
+    private final int window;
+    private final Queue<Future<byte[]>> pending = new ArrayDeque<>();
+    // Each worker thread's buffer and output, emptied after every program
+    private final ThreadLocal<Worker> workers = ThreadLocal.withInitial(Worker::new);
+
+    private static class Worker {
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        final PrintStream stream = new PrintStream(buffer);
+        final ProgramOutput output = Main.output(stream);
+
+        byte[] take() {
+            stream.flush();
+            return buffer.toByteArray();
+        }
+    }
+
+    public ParallelDriver(int threads, PrintStream out) {
+        this.pool = new ForkJoinPool(threads);
+        this.out = out;
+        this.window = threads * 4;
+    }
+
+    public void submit(CharSequence program, int programCount) {
+        pending.add(pool.submit(() -> {
+            Worker worker = workers.get();
+            try {
+                Main.processProgram(program, programCount, worker.output);
+                return worker.take();
+            } 
+            finally {
+                // Whatever a failed program left in the buffer must not reach the next one
+                worker.buffer.reset();
+            }
+        }));
+
+        while (pending.size() > window) {
+            writeNext();
+        }
+    }
+
+    public void drain() {
+        while (!pending.isEmpty()) {
+            writeNext();
+        }
+    }
+
+    private void writeNext() {
+        try {
+            byte[] output = pending.remove().get();
+            out.write(output, 0, output.length);
+        } 
+        catch (InterruptedException e) {
+            cancel();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a program to compile", e);
+        } 
+        catch (ExecutionException e) {
+            cancel();
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private void cancel() {
+        for (Future<byte[]> future : pending) {
+            future.cancel(true);
+        }
+        pending.clear();
+    }
+
+    // Call drain() first to write every program. Programs still pending when the driver is
+    // closed, after a failure, are cancelled rather than written.
+    @Override
+    public void close() {
+        try {
+            out.flush();
+        } 
+        finally {
+            if (pending.isEmpty()) {
+                pool.shutdown();
+            } 
+            else {
+                cancel();
+                pool.shutdownNow();
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Lexes one large input on several threads by speculating and repairing. The input is cut into
+// chunks just after line breaks, and each chunk is lexed on its own as though it started outside
+// any string or comment, on the line found by counting the line breaks before it. The chunks are
+// then stitched together in order. A chunk is kept only if the text before it really did end
+// exactly at its start, on the guessed line. Otherwise a string or block comment ran across the
+// cut, and that stretch is lexed again from where the text before it really ended. Tokens,
+// errors and warnings come out the same as from Lexer.tokenizeBuffer().
+public class ParallelLexer {
+    static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    private final CharSequence input;
+    private final int chunkSize;
+    private final ForkJoinPool pool;
+    private final SymbolInterner symbols;
+    private List<String> errors;
+    private List<String> warnings;
+
+    public ParallelLexer(CharSequence input) {
+        this(input, DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+    }
+
+    public ParallelLexer(CharSequence input, int chunkSize, ForkJoinPool pool) {
+        this(input, chunkSize, pool, null);
+    }
+
+    // With symbols set, ID tokens are interned in source order once the chunks are stitched
+    public ParallelLexer(CharSequence input, int chunkSize, ForkJoinPool pool, SymbolInterner symbols) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        this.input = input;
+        this.chunkSize = chunkSize;
+        this.pool = pool;
+        this.symbols = symbols;
+        this.errors = new ArrayList<>();
+        this.warnings = new ArrayList<>();
+    }
+
+    public TokenBuffer tokenizeBuffer() {
+        int[] starts = chunkStarts();
+        int chunks = starts.length - 1;
+        int[] lines = firstLines(starts);
+
+        List<ForkJoinTask<Fragment>> fragments = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks; i++) {
+            Lexer lexer = new Lexer(input, starts[i], lines[i], starts[i], starts[i + 1]);
+            fragments.add(pool.submit(() -> new Fragment(lexer, lexer.tokenizeBuffer())));
+        }
+
+        TokenBuffer tokens = new TokenBuffer(input);
+        int pos = 0;
+        int line = 1;
+        int lineStart = 0;
+        boolean stopped = false;
+
+        try {
+            for (int i = 0; i < chunks && !stopped; i++) {
+                int limit = starts[i + 1];
+                if (pos >= limit) {
+                    // Swallowed whole by a string or comment from an earlier chunk
+                    continue;
+                }
+
+                Fragment fragment;
+                if (pos == starts[i] && line == lines[i] && lineStart == starts[i]) {
+                    fragment = fragments.get(i).join();
+                }
+                else {
+                    Lexer lexer = new Lexer(input, pos, line, lineStart, limit);
+                    fragment = new Fragment(lexer, lexer.tokenizeBuffer());
+                }
+
+                tokens.addAll(fragment.tokens);
+                errors.addAll(fragment.lexer.getErrors());
+                pos = fragment.lexer.position();
+                line = fragment.lexer.line();
+                lineStart = fragment.lexer.lineStart();
+                stopped = fragment.lexer.isStopped();
+            }
+        }
+        finally {
+            for (ForkJoinTask<Fragment> fragment : fragments) {
+                fragment.cancel(false);
+            }
+        }
+
+        if (tokens.size() == 0 || tokens.type(tokens.size() - 1) != TokenType.EOF) {
+            warnings.add("Warning: Missing '$' at the end of the code. Automatically adding '$'.");
+            tokens.add(TokenType.EOF, pos, 0, line, pos - lineStart + 1);
+        }
+        if (symbols != null) {
+            tokens.internSymbols(symbols);
+        }
+
+        return tokens;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public List<String> getWarnings() {
+        return warnings;
+    }
+
+    // Chunk i is input[starts[i], starts[i + 1]); every chunk after the first starts a line
+    private int[] chunkStarts() {
+        int length = input.length();
+        List<Integer> starts = new ArrayList<>();
+        starts.add(0);
+
+        int start = 0;
+        while (length - start > chunkSize) {
+            int lineBreak = FastScan.indexOf(input, '\n', start + chunkSize - 1, length);
+            if (lineBreak + 1 >= length) {
+                break;
+            }
+            start = lineBreak + 1;
+            starts.add(start);
+        }
+        starts.add(length);
+
+        int[] result = new int[starts.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = starts.get(i);
+        }
+        return result;
+    }
+
+    // The line each chunk starts on, from line breaks counted a chunk per task
+    private int[] firstLines(int[] starts) {
+        int chunks = starts.length - 1;
+        List<ForkJoinTask<Integer>> counts = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks - 1; i++) {
+            int from = starts[i];
+            int to = starts[i + 1];
+            counts.add(pool.submit(() -> FastScan.count(input, '\n', from, to)));
+        }
+
+        int[] lines = new int[chunks];
+        lines[0] = 1;
+        for (int i = 1; i < chunks; i++) {
+            lines[i] = lines[i - 1] + counts.get(i - 1).join();
+        }
+        return lines;
+    }
+
+    private static class Fragment {
+        final Lexer lexer;
+        final TokenBuffer tokens;
+
+        Fragment(Lexer lexer, TokenBuffer tokens) {
+            this.lexer = lexer;
+            this.tokens = tokens;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+// Receives the Parser's progress: one enter/exit pair per production, with the index of the
+// token the parser was at. NONE does nothing; the parser's calls into it are inlined away.
+public interface ParseListener {
+    ParseListener NONE = new ParseListener() {
+    };
+
+    default void parseStarted() {
+    }
+
+    default void enter(Production production, int position) {
+    }
+
+    default void exit(Production production, int position) {
+    }
+
+    // error is null if the program parsed
+    default void parseFinished(String error) {
+    }
+
+    // Passes every event to first and then to second
+    static ParseListener tee(ParseListener first, ParseListener second) {
+        return new ParseListener() {
+            @Override
+            public void parseStarted() {
+                first.parseStarted();
+                second.parseStarted();
+            }
+
+            @Override
+            public void enter(Production production, int position) {
+                first.enter(production, position);
+                second.enter(production, position);
+            }
+
+            @Override
+            public void exit(Production production, int position) {
+                first.exit(production, position);
+                second.exit(production, position);
+            }
+
+            @Override
+            public void parseFinished(String error) {
+                first.parseFinished(error);
+                second.parseFinished(error);
+            }
+        };
+    }
+}
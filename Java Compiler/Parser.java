@@ -4,63 +4,82 @@ import java.util.List;
 import java.util.Scanner;
 
 public class Parser {
-    private List<Token> tokens;
+    private TokenStream tokens;
     private int pos;
-    private int length;
-    String error;
+    private ParseListener listener;
+    private String error;
 
     public Parser(List<Token> tokens) {
+        this(new ListTokenStream(tokens));
+    }
+
+    // Parses silently; use a TracingParseListener for the trace
+    public Parser(TokenStream tokens) {
+        this(tokens, ParseListener.NONE);
+    }
+
+    public Parser(TokenStream tokens, ParseListener listener) {
         this.tokens = tokens;
-        this.length = tokens.size();
+        this.listener = listener;
         this.pos = 0;
         //this.errors = new ArrayList<>();
         this.error = null;
     }
 
+    // The message the parse stopped with, or null if the program parsed
+    public String getError() {
+        return error;
+    }
+
     public void parse() {
-        System.out.println("Parsing program...");
+        listener.parseStarted();
         parseProgram();
 
         if (error == null && !isAtEnd()) {
             consume(TokenType.EOF, "Expected '$' to end");
         }
-        if (error != null) {
-            System.out.println("Error:");
-            System.out.println(error);
-        } else {
-            System.out.println("Parsing finished.");
-        }
+        listener.parseFinished(error);
     }
 
     private void parseProgram() {
-        System.out.println("parseProgram()");
+        listener.enter(Production.PROGRAM, pos);
         parseBlock();
+        listener.exit(Production.PROGRAM, pos);
     }
 
     private void parseBlock() {
-        System.out.println("parseBlock()");
+        listener.enter(Production.BLOCK, pos);
         consume(TokenType.LEFT_BRACE, "Expected statement to start with left brace");
         parseStatementList();
         consume(TokenType.RIGHT_BRACE, "Expected statement to end at right brace");
+        listener.exit(Production.BLOCK, pos);
     }
 
+    // StatementList ::= Statement StatementList | empty, so the grammar (and the trace) nests one
+    // statement list per statement. The nesting is only counted: every list after the first
+    // ends where the first one does, so their exits all come together at the end.
     private void parseStatementList() {
-        System.out.println("parseStatementList()");
+        listener.enter(Production.STATEMENT_LIST, pos);
+        int lists = 1;
         while (!check(TokenType.RIGHT_BRACE) && !isAtEnd()) {
             if (check(TokenType.LEFT_BRACE) || check(TokenType.PRINT) || check(TokenType.WHILE) || check(TokenType.IF) || 
                 check(TokenType.ID) || check(TokenType.INT) || check(TokenType.STRING) || check(TokenType.BOOLEAN)) {
                 parseStatement();
-                parseStatementList();
+                listener.enter(Production.STATEMENT_LIST, pos);
+                lists++;
             } 
             else {
                 error("Cannot start statement with");
                 break;
             }
         }
+        for (; lists > 0; lists--) {
+            listener.exit(Production.STATEMENT_LIST, pos);
+        }
     }
 
     private void parseStatement() {
-        System.out.println("parseStatement()");
+        listener.enter(Production.STATEMENT, pos);
         if (check(TokenType.INT)) {
             parseVarDecl();
         } 
@@ -88,29 +107,33 @@ public class Parser {
         else {
             error("Expected a statement");
         }
+        listener.exit(Production.STATEMENT, pos);
     }
 
     private void parseVarDecl() {
-        System.out.println("parseVarDecl()");
+        listener.enter(Production.VAR_DECL, pos);
         parseType();
         consume(TokenType.ID, "Expected identifier after type");
+        listener.exit(Production.VAR_DECL, pos);
     }
 
     private void parseAssignmentStatement() {
-        System.out.println("parseAssignmentStatement()");
+        listener.enter(Production.ASSIGNMENT_STATEMENT, pos);
         consume(TokenType.ASSIGN, "Expected '=' after identifier");
         parseExpr();
+        listener.exit(Production.ASSIGNMENT_STATEMENT, pos);
     }
 
     private void parseType() {
-        System.out.println("parseType()");
+        listener.enter(Production.TYPE, pos);
         if (!match(TokenType.INT, TokenType.BOOLEAN, TokenType.STRING)) {
             error("Expected type");
         }
+        listener.exit(Production.TYPE, pos);
     }
 
     private void parseExpr() {
-        System.out.println("parseExpr()");
+        listener.enter(Production.EXPR, pos);
         if (check(TokenType.ID)) {
             advance();
         } 
@@ -128,53 +151,59 @@ public class Parser {
         } 
         else {
             error("Expected expression");
-            return;
         }
+        listener.exit(Production.EXPR, pos);
     }
 
     private void parseBooleanExpr() {
-        System.out.println("parseBooleanExpr()");
+        listener.enter(Production.BOOLEAN_EXPR, pos);
         if (match(TokenType.BOOLEAN_VAL)) {
-            return;
+            // A literal is the whole expression
         } 
         else if (match(TokenType.LEFT_PARENTHESIS)) {
             parseExpr();
             parseBoolOp();
             parseExpr();
             consume(TokenType.RIGHT_PARENTHESIS, "Expected ')' after boolean expression");
-            return;
+        } 
+        else {
+            error("Expected boolean expression");
         }
-        error("Expected boolean expression");
+        listener.exit(Production.BOOLEAN_EXPR, pos);
     }
 
     private void parseBoolOp() {
-        System.out.println("parseBooleanOp()");
+        listener.enter(Production.BOOLEAN_OP, pos);
         if (!match(TokenType.BOOLEAN_OP)) {
             error("Expected boolean operator");
         }
+        listener.exit(Production.BOOLEAN_OP, pos);
     }
 
     private void parseIntOp() {
-        System.out.println("parseIntOp()");
+        listener.enter(Production.INT_OP, pos);
         if (!match(TokenType.INT_OP)) {
             error("Expected integer operator");
         }
+        listener.exit(Production.INT_OP, pos);
     }
 
     private void parseIfStatement() {
-        System.out.println("parseIfStatement()");
+        listener.enter(Production.IF_STATEMENT, pos);
         parseBooleanExpr();
         parseBlock();
+        listener.exit(Production.IF_STATEMENT, pos);
     }
 
     private void parseWhileStatement() {
-        System.out.println("parseWhileStatement()");
+        listener.enter(Production.WHILE_STATEMENT, pos);
         parseBooleanExpr();
         parseBlock();
+        listener.exit(Production.WHILE_STATEMENT, pos);
     }
 
     private void parseIntExpr() {
-        System.out.println("parseIntExpr()");
+        listener.enter(Production.INT_EXPR, pos);
         if (match(TokenType.DIGIT)) {
             if (check(TokenType.INT_OP)) {
                 parseIntOp();
@@ -184,20 +213,23 @@ public class Parser {
         else {
             error("Expected integer expression");
         }
+        listener.exit(Production.INT_EXPR, pos);
     }
 
     private void parseStringExpr() {
-        System.out.println("parseStringExpr()");
+        listener.enter(Production.STRING_EXPR, pos);
         if (!match(TokenType.CHAR)) {
             error("Expected string expression");
         }
+        listener.exit(Production.STRING_EXPR, pos);
     }
 
     private void parsePrintStatement() {
-        System.out.println("parsePrintStatement");
+        listener.enter(Production.PRINT_STATEMENT, pos);
         consume(TokenType.LEFT_PARENTHESIS, "Expected '(' after 'print'");
         parseExpr();
         consume(TokenType.RIGHT_PARENTHESIS, "Expected ')' after expression");
+        listener.exit(Production.PRINT_STATEMENT, pos);
     }
 
     private boolean match(TokenType... types) {
@@ -210,38 +242,37 @@ public class Parser {
         return false;
     }
 
-    private Token consume(TokenType type, String message) {
-        if (check(type))
-            return advance();
+    private void consume(TokenType type, String message) {
+        if (check(type)) {
+            advance();
+            return;
+        }
         error(message);
-        return null;
     }
 
     private void error(String message) {
         if (error == null) {
-            error = message + " at " + (pos < length ? tokens.get(pos) : "EOF");
+            Token current = tokens.peek();
+            error = message + " at " + (current != null ? current : "EOF");
         }
     }
 
-    private Token advance() {
+    private void advance() {
         if (!isAtEnd()) {
+            tokens.skip();
             pos++;
         }
-        return previous();
     }
 
     private boolean check(TokenType type) {
         if (isAtEnd())
             return false;
-        return tokens.get(pos).getType() == type;
-    }
-
-    private Token previous() {
-        return tokens.get(pos - 1);
+        return tokens.peekType() == type;
     }
 
     private boolean isAtEnd() {
-        return pos >= length || tokens.get(pos).getType() == TokenType.EOF;
+        TokenType current = tokens.peekType();
+        return current == null || current == TokenType.EOF;
     }
 
     /*public static void main(String[] args) {
@@ -0,0 +1,119 @@
+import java.util.function.IntSupplier;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// A JDK Flight Recorder event for one phase of compiling one program. Main ends a phase's event
+// before printing what the phase produced, and records the printing as PRINT and SYMBOL_TABLE
+// events of their own. It is only recorded while a recording has it enabled, for example:
+//
+//   java -XX:StartFlightRecording:filename=compile.jfr Main programs.txt
+//   jfr print --events compiler.Phase compile.jfr
+//
+// With --metrics, Main also adds every phase's duration to a PhaseMetrics summary, and with
+// --alloc, what it allocated to an AllocationMetrics report.
+@Name("compiler.Phase")
+@Label("Compiler Phase")
+@Category("Compiler")
+@StackTrace(false)
+class PhaseEvent extends Event {
+    enum Phase {
+        LEX,
+        // The Parser's validation pass, recording the parse trace but not printing it
+        PARSE,
+        CST,
+        // Building the AST, which also runs the semantic checks
+        AST,
+        // Printing the tokens, the parse trace, the CST and the AST
+        PRINT,
+        // Printing the semantic errors or warnings, and the symbol table
+        SYMBOL_TABLE,
+        // Parse, CST and AST in one FrontEnd pass, with --fused
+        FUSED,
+        // One whole Compiler.compile call, with --emit
+        COMPILE
+    }
+
+    // Set by Main for --metrics and --alloc before any program runs
+    static PhaseMetrics metrics;
+    static AllocationMetrics allocation;
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Program")
+    @Description("The program's number in its input, from 1")
+    int program;
+
+    @Label("Tokens")
+    int tokens;
+
+    @Label("Nodes")
+    @Description("Nodes in the trees the phase built, or 0")
+    int nodes;
+
+    @Label("Symbols")
+    int symbols;
+
+    @Label("Errors")
+    int errors;
+
+    @Label("Allocated")
+    @Description("Bytes allocated by the thread running the phase")
+    @DataAmount
+    long allocated;
+
+    // Not recorded in the event: the phase and where it started, for the summaries, which are
+    // needed whether or not a recording is running
+    private transient Phase kind;
+    private transient long startNanos;
+    private transient long startAllocated;
+    private transient long startLive;
+
+    static PhaseEvent start(Phase phase, int program) {
+        PhaseEvent event = new PhaseEvent();
+        event.kind = phase;
+        event.program = program;
+        if (allocation != null) {
+            event.startLive = allocation.startPhase();
+        }
+        // Read after the heap tracking above, so that its work is not counted
+        if (metrics != null) {
+            event.startNanos = System.nanoTime();
+        }
+        if (allocation != null || event.isEnabled()) {
+            event.startAllocated = AllocationMetrics.allocatedBytes();
+        }
+        event.begin();
+        return event;
+    }
+
+    // Ends the phase. Nodes are only counted if they are going to be reported.
+    void finish(int tokens, IntSupplier nodes, int symbols, int errors) {
+        long allocatedBytes = allocation != null || isEnabled() ? AllocationMetrics.allocatedBytes() - startAllocated : 0;
+        end();
+        if (metrics != null) {
+            metrics.record(kind, System.nanoTime() - startNanos);
+        }
+        boolean commit = shouldCommit();
+        // Counted once, and not while AllocationMetrics holds its lock
+        int nodeCount = nodes != null && (allocation != null || commit) ? nodes.getAsInt() : 0;
+        if (allocation != null) {
+            allocation.record(kind, allocatedBytes, tokens, nodeCount, startLive);
+        }
+        if (commit) {
+            this.phase = kind.name();
+            this.tokens = tokens;
+            this.nodes = nodeCount;
+            this.symbols = symbols;
+            this.errors = errors;
+            this.allocated = allocatedBytes;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Latency histograms of each phase over a whole run, for --metrics. Durations are counted in
+// log-linear buckets, 16 to each power of two, so memory stays fixed however many programs
+// run and the percentiles reported are within 1/16 of the true value. Thread safe.
+public class PhaseMetrics {
+    private static final PhaseEvent.Phase[] PHASES = PhaseEvent.Phase.values();
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Enough buckets for any positive long
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray[] counts = new AtomicLongArray[PHASES.length];
+    private final AtomicLong[] totals = new AtomicLong[PHASES.length];
+    private final AtomicLong[] maxima = new AtomicLong[PHASES.length];
+
+    public PhaseMetrics() {
+        for (int i = 0; i < PHASES.length; i++) {
+            counts[i] = new AtomicLongArray(BUCKETS);
+            totals[i] = new AtomicLong();
+            maxima[i] = new AtomicLong();
+        }
+    }
+
+    public void record(PhaseEvent.Phase phase, long nanos) {
+        int i = phase.ordinal();
+        counts[i].incrementAndGet(bucket(Math.max(0, nanos)));
+        totals[i].addAndGet(nanos);
+        maxima[i].accumulateAndGet(nanos, Math::max);
+    }
+
+    // Values below SUB_BUCKETS have a bucket each; above that, each power of two is split
+    // into SUB_BUCKETS equal parts
+    static int bucket(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int shift = exponent - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((nanos >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    // The largest value that falls in bucket
+    static long bucketLimit(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long subBucket = SUB_BUCKETS + bucket % SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    public long getCount(PhaseEvent.Phase phase) {
+        long count = 0;
+        AtomicLongArray buckets = counts[phase.ordinal()];
+        for (int b = 0; b < BUCKETS; b++) {
+            count += buckets.get(b);
+        }
+        return count;
+    }
+
+    // The duration in nanoseconds that the given fraction of the phase's runs took at most
+    public long getPercentile(PhaseEvent.Phase phase, double fraction) {
+        AtomicLongArray buckets = counts[phase.ordinal()];
+        long rank = Math.max(1, (long) Math.ceil(fraction * getCount(phase)));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += buckets.get(b);
+            if (seen >= rank) {
+                // The bucket's limit can be above the largest value recorded in it
+                return Math.min(bucketLimit(b), maxima[phase.ordinal()].get());
+            }
+        }
+        return 0;
+    }
+
+    public void report(PrintStream out) {
+        out.println(String.format("%-14s %10s %12s %12s %12s %12s", "Phase", "Programs", "p50 ms", "p99 ms", "Max ms",
+                "Total ms"));
+        for (PhaseEvent.Phase phase : PHASES) {
+            long count = getCount(phase);
+            if (count > 0) {
+                int i = phase.ordinal();
+                out.println(String.format("%-14s %10d %12.3f %12.3f %12.3f %12.3f", phase, count,
+                        getPercentile(phase, 0.5) / 1e6, getPercentile(phase, 0.99) / 1e6, maxima[i].get() / 1e6,
+                        totals[i].get() / 1e6));
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+// The Parser's grammar rules, with the line each one has always printed in the parse trace
+public enum Production {
+    PROGRAM("parseProgram()"),
+    BLOCK("parseBlock()"),
+    STATEMENT_LIST("parseStatementList()"),
+    STATEMENT("parseStatement()"),
+    VAR_DECL("parseVarDecl()"),
+    ASSIGNMENT_STATEMENT("parseAssignmentStatement()"),
+    TYPE("parseType()"),
+    EXPR("parseExpr()"),
+    BOOLEAN_EXPR("parseBooleanExpr()"),
+    BOOLEAN_OP("parseBooleanOp()"),
+    INT_OP("parseIntOp()"),
+    IF_STATEMENT("parseIfStatement()"),
+    WHILE_STATEMENT("parseWhileStatement()"),
+    INT_EXPR("parseIntExpr()"),
+    STRING_EXPR("parseStringExpr()"),
+    PRINT_STATEMENT("parsePrintStatement");
+
+    private final String trace;
+
+    Production(String trace) {
+        this.trace = trace;
+    }
+
+    public String getTrace() {
+        return trace;
+    }
+}
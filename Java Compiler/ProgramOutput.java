@@ -0,0 +1,50 @@
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+// Where Main prints programs: the stream, and the buffer in front of it for the output format.
+// Main makes one per run, or one per thread when programs run on several, and flushes it after
+// every program, so programs share one buffer instead of each allocating its own.
+class ProgramOutput {
+    final PrintStream out;
+    // For --emit, the emitter; null for the text output, which goes through sink and has each
+    // program's parse trace recorded by trace
+    final ArtifactEmitter emitter;
+    final OutputSink sink;
+    final TracingParseListener trace;
+
+    private final String format;
+    // Made the first time --cache has to compile a program
+    private ByteArrayOutputStream captureBuffer;
+    private ArtifactEmitter capture;
+
+    ProgramOutput(String format, PrintStream out) {
+        this.out = out;
+        this.format = format;
+        this.emitter = ArtifactEmitter.forFormat(format, out);
+        this.sink = emitter == null ? new OutputSink(out) : null;
+        this.trace = emitter == null ? new TracingParseListener() : null;
+    }
+
+    // An emitter writing into captureBuffer(), which is emptied first
+    ArtifactEmitter startCapture() {
+        if (capture == null) {
+            captureBuffer = new ByteArrayOutputStream();
+            capture = ArtifactEmitter.forFormat(format, captureBuffer);
+        }
+        captureBuffer.reset();
+        return capture;
+    }
+
+    ByteArrayOutputStream captureBuffer() {
+        return captureBuffer;
+    }
+
+    void flush() {
+        if (emitter != null) {
+            emitter.flush();
+        }
+        else {
+            sink.flush();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+// Precomputed lookup tables for the lexer's ASCII fast path. Characters at or above 128 are
+// classified by the slow path in classify(), which uses the Unicode-aware Character methods.
+final class ScannerTables {
+    static final int ASCII = 128;
+
+    static final byte OTHER = 0;
+    static final byte SPACE = 1;
+    static final byte NEWLINE = 2;
+    static final byte LETTER = 3;
+    static final byte DIGIT = 4;
+    static final byte QUOTE = 5;
+    static final byte SLASH = 6;
+    static final byte OPERATOR = 7;
+
+    // Operator spellings and the token each one produces. A lone '!' lexes as ASSIGN, as it always has.
+    private static final String[] OPERATOR_SPELLINGS = { "+", "=", "!", "==", "!=", "(", ")", "{", "}", "$" };
+    private static final TokenType[] OPERATOR_TYPES = {
+        TokenType.INT_OP, TokenType.ASSIGN, TokenType.ASSIGN, TokenType.BOOLEAN_OP, TokenType.BOOLEAN_OP,
+        TokenType.LEFT_PARENTHESIS, TokenType.RIGHT_PARENTHESIS, TokenType.LEFT_BRACE, TokenType.RIGHT_BRACE, TokenType.EOF
+    };
+
+    static final byte[] CLASSES = new byte[ASCII];
+    static final boolean[] IDENTIFIER_PART = new boolean[ASCII];
+
+    // Operator DFA: OPERATOR_NEXT[state * ASCII + c] is the next state, 0 meaning no transition.
+    // OPERATOR_ACCEPT[state] is the token for a state that ends an operator, otherwise null.
+    static final int[] OPERATOR_NEXT;
+    static final TokenType[] OPERATOR_ACCEPT;
+
+    static {
+        for (char c = 0; c < ASCII; c++) {
+            if (c == '\n') {
+                CLASSES[c] = NEWLINE;
+            }
+            else if (Character.isWhitespace(c)) {
+                CLASSES[c] = SPACE;
+            }
+            else if (Character.isLetter(c)) {
+                CLASSES[c] = LETTER;
+            }
+            else if (Character.isDigit(c)) {
+                CLASSES[c] = DIGIT;
+            }
+            else if (c == '"') {
+                CLASSES[c] = QUOTE;
+            }
+            else if (c == '/') {
+                CLASSES[c] = SLASH;
+            }
+            IDENTIFIER_PART[c] = Character.isLetterOrDigit(c) || c == '_';
+        }
+
+        int maxStates = 1;
+        for (String spelling : OPERATOR_SPELLINGS) {
+            maxStates += spelling.length();
+        }
+        int[] next = new int[maxStates * ASCII];
+        TokenType[] accept = new TokenType[maxStates];
+        int states = 1;
+
+        for (int i = 0; i < OPERATOR_SPELLINGS.length; i++) {
+            String spelling = OPERATOR_SPELLINGS[i];
+            CLASSES[spelling.charAt(0)] = OPERATOR;
+            int state = 0;
+            for (int j = 0; j < spelling.length(); j++) {
+                int slot = state * ASCII + spelling.charAt(j);
+                if (next[slot] == 0) {
+                    next[slot] = states++;
+                }
+                state = next[slot];
+            }
+            accept[state] = OPERATOR_TYPES[i];
+        }
+
+        OPERATOR_NEXT = next;
+        OPERATOR_ACCEPT = accept;
+    }
+
+    private ScannerTables() {
+    }
+
+    static int classify(char c) {
+        if (c < ASCII) {
+            return CLASSES[c];
+        }
+        if (Character.isWhitespace(c)) {
+            return SPACE;
+        }
+        if (Character.isLetter(c)) {
+            return LETTER;
+        }
+        if (Character.isDigit(c)) {
+            return DIGIT;
+        }
+        return OTHER;
+    }
+
+    static boolean isIdentifierPart(char c) {
+        return c < ASCII ? IDENTIFIER_PART[c] : Character.isLetterOrDigit(c);
+    }
+}
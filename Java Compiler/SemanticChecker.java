@@ -0,0 +1,231 @@
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+// Declaration, assignment and usage checks, shared by AST and FrontEnd so that both report
+// the same errors, warnings and symbol table. Variables are tracked by their SymbolInterner id.
+public class SemanticChecker {
+    private List<String> errors = new ArrayList<>();
+    private List<String> warnings = new ArrayList<>();
+    private SymbolTable symbolTable = new SymbolTable();
+    private SymbolInterner symbols;
+    private BitSet declaredVariables = new BitSet();
+    private BitSet usedVariables = new BitSet();
+    private BitSet assignedVariables = new BitSet();
+    private ExpressionTypeVisitor expressionType = new ExpressionTypeVisitor();
+
+    public SemanticChecker() {
+        this(new SymbolInterner());
+    }
+
+    // symbols should be the interner the tokens were lexed with, if any
+    public SemanticChecker(SymbolInterner symbols) {
+        this.symbols = symbols;
+    }
+
+    public void declare(ValueType type, Token idToken, int currentScope) {
+        declare(type, idToken.getValue(), symbol(idToken), idToken.getLine(), currentScope);
+    }
+
+    public void declare(ValueType type, String name, int symbol, int line, int currentScope) {
+        declaredVariables.set(symbol);
+
+        SymbolTableEntry existingEntry = /*symbolTable.getEntryAcrossScopes(name);*/ symbolTable.getEntry(name, currentScope);
+        if (existingEntry != null) {
+            errors.add("Variable '" + name + "' already declared in the current scope at line " + existingEntry.getLine());
+            if (existingEntry.getScope() < currentScope) {
+                symbolTable.addEntry(name, type, currentScope, line);
+            }
+            else {
+                // Variable is redeclared in the same or lower scope, which is an error
+                if (existingEntry.getValueType() != type) {
+                    errors.add("Variable '" + name + "' is already declared as '" + existingEntry.getType() +
+                            "' in the same scope but attempted to declare as '" + type + "'.");
+                }
+            }
+        }
+        else {
+            // Add entry to symbol table
+            symbolTable.addEntry(name, type, currentScope, line);
+        }
+    }
+
+    // Called by the tree builders as each block's statements start and end
+    public void openBlock() {
+        symbolTable.openBlock();
+    }
+
+    public void closeBlock() {
+        symbolTable.closeBlock();
+    }
+
+    public void assign(Token idToken, ASTNode exprNode, int currentScope) {
+        SymbolTableEntry entry = assignedEntry(idToken.getValue(), symbol(idToken), currentScope);
+        if (entry != null) {
+            // Determine the type of the expression
+            checkAssignedType(idToken.getValue(), entry, determineExpressionType(exprNode, currentScope));
+        }
+    }
+
+    // The same check for an assignment whose expression is node exprNode of arena
+    public void assign(String name, int symbol, ASTArena arena, int exprNode, int currentScope) {
+        SymbolTableEntry entry = assignedEntry(name, symbol, currentScope);
+        if (entry != null) {
+            checkAssignedType(name, entry, determineExpressionType(arena, exprNode, currentScope));
+        }
+    }
+
+    // The entry an assignment to name resolves to, marking the variable used and assigned, or
+    // null after reporting that it was never declared
+    private SymbolTableEntry assignedEntry(String name, int symbol, int currentScope) {
+        // The current level first, as it always was
+        SymbolTableEntry entry = symbolTable.getEntry(name, currentScope);
+        if (entry == null) {
+            // Then the innermost enclosing block that declares it
+            entry = symbolTable.getEntryInOpenBlocks(name);
+        }
+        if (entry == null) {
+            // A variable declared in a block that has already closed is still accepted, as it always was
+            entry = symbolTable.getEntryAcrossScopes(name);
+        }
+        if (entry != null) {
+            usedVariables.set(symbol);
+            assignedVariables.set(symbol);
+        }
+        else {
+            errors.add("Variable '" + name + "' not declared.");
+        }
+        return entry;
+    }
+
+    private void checkAssignedType(String name, SymbolTableEntry entry, ValueType exprType) {
+        ValueType varType = entry.getValueType(); // Type of the variable
+        // Check if the types match
+        if (varType != exprType) {
+            errors.add("Variable '" + name + "' declared as '" + varType +
+                    "' but assigned a value of type '" + exprType + "'.");
+        }
+    }
+
+    private ValueType determineExpressionType(ASTNode exprNode, int currentScope) {
+        if (exprNode == null) {
+            return ValueType.UNKNOWN;
+        }
+        expressionType.currentScope = currentScope;
+        return exprNode.accept(expressionType);
+    }
+
+    // The type of an expression node on the right of an assignment
+    private class ExpressionTypeVisitor implements ASTVisitor<ValueType> {
+        int currentScope;
+
+        @Override
+        public ValueType visitNode(ASTNode node) {
+            return ValueType.UNKNOWN;
+        }
+
+        @Override
+        public ValueType visitIntegerExpression(IntegerExpressionASTNode node) {
+            return ValueType.INT;
+        }
+
+        @Override
+        public ValueType visitBooleanValue(BooleanValueASTNode node) {
+            return ValueType.BOOLEAN;
+        }
+
+        @Override
+        public ValueType visitBooleanExpression(BooleanExpressionASTNode node) {
+            return ValueType.BOOLEAN;
+        }
+
+        @Override
+        public ValueType visitStringExpression(StringExpressionASTNode node) {
+            return ValueType.STRING;
+        }
+
+        @Override
+        public ValueType visitString(StringASTNode node) {
+            return ValueType.STRING;
+        }
+
+        @Override
+        public ValueType visitIdentifier(IdentifierASTNode node) {
+            return identifierType(node.identifier, currentScope);
+        }
+    }
+
+    private ValueType determineExpressionType(ASTArena arena, int exprNode, int currentScope) {
+        if (exprNode < 0) {
+            return ValueType.UNKNOWN;
+        }
+        switch (arena.kind(exprNode)) {
+            case INTEGER_EXPRESSION:
+                return ValueType.INT;
+            case BOOLEAN_VALUE:
+            case BOOLEAN_EXPRESSION:
+                return ValueType.BOOLEAN;
+            case STRING_EXPRESSION:
+            case STRING:
+                return ValueType.STRING;
+            case IDENTIFIER:
+                return identifierType(arena.value(exprNode), currentScope);
+            default:
+                return ValueType.UNKNOWN;
+        }
+    }
+
+    private ValueType identifierType(String name, int currentScope) {
+        SymbolTableEntry entry = symbolTable.getEntry(name, currentScope);
+        if (entry != null) {
+            return entry.getValueType();
+        } else {
+            errors.add("Variable '" + name + "' not found in the symbol table.");
+            return ValueType.UNKNOWN;
+        }
+    }
+
+    // The token's interned id, interning it now if the lexer did not
+    private int symbol(Token idToken) {
+        return symbol(idToken.getSymbol(), idToken.getValue());
+    }
+
+    int symbol(int symbol, String name) {
+        return symbol >= 0 ? symbol : symbols.intern(name);
+    }
+
+    // Reports unused and unassigned variables once the whole program has been checked. Each
+    // list is in the order the variables first appear in the source.
+    public void finish() {
+        checkUnusedVariables();
+        checkUnassignedVariables();
+    }
+
+    private void checkUnusedVariables() {
+        BitSet unused = (BitSet) declaredVariables.clone();
+        unused.andNot(usedVariables);
+        for (int symbol = unused.nextSetBit(0); symbol >= 0; symbol = unused.nextSetBit(symbol + 1)) {
+            warnings.add("Variable '" + symbols.name(symbol) + "' declared but never used.");
+        }
+    }
+
+    private void checkUnassignedVariables() {
+        BitSet unassigned = (BitSet) declaredVariables.clone();
+        unassigned.andNot(assignedVariables);
+        for (int symbol = unassigned.nextSetBit(0); symbol >= 0; symbol = unassigned.nextSetBit(symbol + 1)) {
+            warnings.add("Variable '" + symbols.name(symbol) + "' declared but never assigned.");
+        }
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public List<String> getWarnings() {
+        return warnings;
+    }
+
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+}
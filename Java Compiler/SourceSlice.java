@@ -0,0 +1,41 @@
+// A read-only window onto a larger CharSequence; characters are read through, never copied
+public final class SourceSlice implements CharSequence {
+    private final CharSequence source;
+    private final int offset;
+    private final int length;
+
+    public SourceSlice(CharSequence source, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > source.length()) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", source length " + source.length());
+        }
+        this.source = source;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+        }
+        return source.charAt(offset + index);
+    }
+
+    @Override
+    public SourceSlice subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+        }
+        return new SourceSlice(source, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return source.subSequence(offset, offset + length).toString();
+    }
+}
@@ -0,0 +1,56 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Gives every distinct identifier a dense int id, in the order the identifiers are first seen,
+// so semantic analysis can index arrays and bit sets instead of hashing names. Identifiers are
+// single letters in this language; those are looked up in a table without building a String.
+public final class SymbolInterner {
+    private final int[] asciiIds = new int[ScannerTables.ASCII];
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+
+    public SymbolInterner() {
+        Arrays.fill(asciiIds, -1);
+    }
+
+    public int intern(CharSequence source, int start, int length) {
+        if (length == 1 && source.charAt(start) < ScannerTables.ASCII) {
+            return internAscii(source.charAt(start));
+        }
+        return intern(source.subSequence(start, start + length).toString());
+    }
+
+    public int intern(String name) {
+        if (name.length() == 1 && name.charAt(0) < ScannerTables.ASCII) {
+            return internAscii(name.charAt(0));
+        }
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = names.size();
+            names.add(name);
+            ids.put(name, id);
+        }
+        return id;
+    }
+
+    private int internAscii(char c) {
+        int id = asciiIds[c];
+        if (id < 0) {
+            id = names.size();
+            names.add(String.valueOf(c));
+            asciiIds[c] = id;
+        }
+        return id;
+    }
+
+    public String name(int id) {
+        return names.get(id);
+    }
+
+    public int size() {
+        return names.size();
+    }
+}
@@ -1,35 +1,112 @@
+import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+// Scopes are nesting levels, numbered from 0, and a level keeps what was declared in it after
+// its block closes. Each level has its own hash map, so a lookup by level is one probe. Apart
+// from the levels, the blocks that are open while checking form a chain from the innermost
+// out, each holding what was declared directly in it. The flat list keeps the declaration
+// order for printing.
 public class SymbolTable {
     private List<SymbolTableEntry> table = new ArrayList<>();
+    private List<Map<String, SymbolTableEntry>> scopes = new ArrayList<>();
+    // The first entry declared under each name, in any scope
+    private Map<String, SymbolTableEntry> firstDeclared = new HashMap<>();
+    // The innermost open block, or null outside every block
+    private Block openBlock;
+
+    private static class Block {
+        final Block parent;
+        final Map<String, SymbolTableEntry> symbols = new HashMap<>();
+
+        Block(Block parent) {
+            this.parent = parent;
+        }
+    }
 
     public void addEntry(String name, String type, int scope, int line) {
-        table.add(new SymbolTableEntry(name, type, scope, line));
+        addEntry(name, ValueType.of(type), scope, line);
+    }
+
+    public void addEntry(String name, ValueType type, int scope, int line) {
+        SymbolTableEntry entry = new SymbolTableEntry(name, type, scope, line);
+        table.add(entry);
+        // Lookups have always found the first entry with a name, so later duplicates are only listed
+        scope(scope).putIfAbsent(name, entry);
+        firstDeclared.putIfAbsent(name, entry);
+        if (openBlock != null) {
+            openBlock.symbols.putIfAbsent(name, entry);
+        }
+    }
+
+    // The scope at level, creating it and the levels below it if needed
+    private Map<String, SymbolTableEntry> scope(int level) {
+        while (scopes.size() <= level) {
+            scopes.add(new HashMap<>());
+        }
+        return scopes.get(level);
+    }
+
+    // Called as a block's statements start; entries added until the matching closeBlock are
+    // declared in it
+    public void openBlock() {
+        openBlock = new Block(openBlock);
+    }
+
+    public void closeBlock() {
+        openBlock = openBlock.parent;
     }
 
     public boolean contains(String name, int scope) {
-        return table.stream()
-                    .anyMatch(entry -> entry.getName().equals(name) && entry.getScope() == scope);
+        return getEntry(name, scope) != null;
     }
 
     public SymbolTableEntry getEntry(String name, int scope) {
-        return table.stream()
-                    .filter(entry -> entry.getName().equals(name) && entry.getScope() == scope)
-                    .findFirst()
-                    .orElse(null);
+        if (scope < 0 || scope >= scopes.size()) {
+            return null;
+        }
+        return scopes.get(scope).get(name);
     }
 
+    // Resolves name through the blocks that are open, innermost first. Blocks that have closed
+    // are not searched, even if they were at a level that is open now.
+    public SymbolTableEntry getEntryInOpenBlocks(String name) {
+        for (Block block = openBlock; block != null; block = block.parent) {
+            SymbolTableEntry entry = block.symbols.get(name);
+            if (entry != null) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    // The first entry declared under name in any scope, including scopes nested deeper than
+    // the caller's
     public SymbolTableEntry getEntryAcrossScopes(String name) {
-        return table.stream()
-                    .filter(entry -> entry.getName().equals(name))
-                    .findFirst()
-                    .orElse(null);
+        return firstDeclared.get(name);
+    }
+
+    // Every entry, in declaration order
+    public List<SymbolTableEntry> getEntries() {
+        return Collections.unmodifiableList(table);
     }
 
     public void printSymbolTable() {
+        printSymbolTable(System.out);
+    }
+
+    public void printSymbolTable(PrintStream out) {
+        for (SymbolTableEntry entry : table) {
+            out.println(entry);
+        }
+    }
+
+    public void printSymbolTable(OutputSink out) {
         for (SymbolTableEntry entry : table) {
-            System.out.println(entry);
+            entry.print(out);
         }
     }
-}
\ No newline at end of file
+}
@@ -3,11 +3,15 @@ import java.util.Map;
 
 public class SymbolTableEntry {
     private String name;
-    private String type;
+    private ValueType type;
     private int scope;
     private int line;
 
     public SymbolTableEntry(String name, String type, int scope, int line) {
+        this(name, ValueType.of(type), scope, line);
+    }
+
+    public SymbolTableEntry(String name, ValueType type, int scope, int line) {
         this.name = name;
         this.type = type;
         this.scope = scope;
@@ -19,6 +23,10 @@ public class SymbolTableEntry {
     }
 
     public String getType() {
+        return type.toString();
+    }
+
+    public ValueType getValueType() {
         return type;
     }
 
@@ -34,4 +42,10 @@ public class SymbolTableEntry {
     public String toString() {
         return "Name: " + name + ", Type: " + type + ", Scope: " + scope + ", Line: " + line;
     }
+
+    // Same text as println(toString())
+    public void print(OutputSink out) {
+        out.print("Name: ").print(name).print(", Type: ").print(type.toString());
+        out.print(", Scope: ").print(scope).print(", Line: ").print(line).println();
+    }
 }
\ No newline at end of file
@@ -1,12 +1,32 @@
 public class Token {
     private TokenType type;
-    private String value;
+    private CharSequence source;
+    private int offset;
+    private int length;
     private int line;
+    private int column;
+    private int symbol;
+    private String value;
 
     public Token(TokenType type, String value, int line) {
-        this.type = type;
+        this(type, value, 0, value.length(), line, 0);
         this.value = value;
+    }
+
+    // A token whose lexeme is source[offset, offset + length); the value is resolved on first use
+    public Token(TokenType type, CharSequence source, int offset, int length, int line, int column) {
+        this(type, source, offset, length, line, column, -1);
+    }
+
+    // An ID token whose identifier has been interned as symbol
+    public Token(TokenType type, CharSequence source, int offset, int length, int line, int column, int symbol) {
+        this.type = type;
+        this.source = source;
+        this.offset = offset;
+        this.length = length;
         this.line = line;
+        this.column = column;
+        this.symbol = symbol;
     }
 
     public TokenType getType() {
@@ -14,6 +34,9 @@ public class Token {
     }
 
     public String getValue() {
+        if (value == null) {
+            value = Lexer.value(source, type, offset, length);
+        }
         return value;
     }
 
@@ -21,13 +44,32 @@ public class Token {
         return line;
     }
 
+    // 1-based column of the first character of the lexeme, or 0 if the token was not lexed from source
+    public int getColumn() {
+        return column;
+    }
+
+    // SymbolInterner id of an ID token's identifier, or -1 if it was not interned
+    public int getSymbol() {
+        return symbol;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
     @Override
     public String toString() {
-        return "Token [type=" + type + ", value=" + value + ", line=" + line + "]";
+        return "Token [type=" + type + ", value=" + getValue() + ", line=" + line + "]";
     }
 
-    public String getLexeme() {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'getLexeme'");
+    // The raw source text of the token, as a view that copies nothing. For a string literal this
+    // is the body between the quotes, including any comments that getValue() leaves out.
+    public CharSequence getLexeme() {
+        return new SourceSlice(source, offset, length);
     }
-}
\ No newline at end of file
+}
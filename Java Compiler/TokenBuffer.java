@@ -0,0 +1,191 @@
+import java.util.Arrays;
+
+// Struct-of-arrays token list: one byte of TokenType ordinal and five ints (start offset,
+// length, line, column, symbol id) per token. Values are resolved from the source only when
+// asked for.
+public class TokenBuffer {
+    private static final TokenType[] TYPES = TokenType.values();
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final CharSequence source;
+    private byte[] types;
+    private int[] starts;
+    private int[] lengths;
+    private int[] lines;
+    private int[] columns;
+    private int[] symbols;
+    private int size;
+    // Set by seal(); no tokens can be added or changed afterwards
+    private boolean sealed;
+
+    public TokenBuffer(CharSequence source) {
+        this.source = source;
+        this.types = new byte[INITIAL_CAPACITY];
+        this.starts = new int[INITIAL_CAPACITY];
+        this.lengths = new int[INITIAL_CAPACITY];
+        this.lines = new int[INITIAL_CAPACITY];
+        this.columns = new int[INITIAL_CAPACITY];
+        this.symbols = new int[INITIAL_CAPACITY];
+    }
+
+    public void add(TokenType type, int start, int length, int line, int column) {
+        add(type, start, length, line, column, -1);
+    }
+
+    public void add(TokenType type, int start, int length, int line, int column, int symbol) {
+        checkNotSealed();
+        if (size == types.length) {
+            grow(size * 2);
+        }
+        types[size] = (byte) type.ordinal();
+        starts[size] = start;
+        lengths[size] = length;
+        lines[size] = line;
+        columns[size] = column;
+        symbols[size] = symbol;
+        size++;
+    }
+
+    // Appends every token of other, which must read the same source
+    public void addAll(TokenBuffer other) {
+        if (other.source != source) {
+            throw new IllegalArgumentException("Token buffers are over different sources");
+        }
+        checkNotSealed();
+        int total = size + other.size;
+        if (total > types.length) {
+            grow(Math.max(total, size * 2));
+        }
+        System.arraycopy(other.types, 0, types, size, other.size);
+        System.arraycopy(other.starts, 0, starts, size, other.size);
+        System.arraycopy(other.lengths, 0, lengths, size, other.size);
+        System.arraycopy(other.lines, 0, lines, size, other.size);
+        System.arraycopy(other.columns, 0, columns, size, other.size);
+        System.arraycopy(other.symbols, 0, symbols, size, other.size);
+        size = total;
+    }
+
+    // Interns the identifier of every ID token, in order, replacing any ids already set
+    public void internSymbols(SymbolInterner interner) {
+        checkNotSealed();
+        byte id = (byte) TokenType.ID.ordinal();
+        for (int i = 0; i < size; i++) {
+            if (types[i] == id) {
+                symbols[i] = interner.intern(source, starts[i], lengths[i]);
+            }
+        }
+    }
+
+    void seal() {
+        sealed = true;
+    }
+
+    private void checkNotSealed() {
+        if (sealed) {
+            throw new IllegalStateException("The token buffer is sealed; its tokens cannot change");
+        }
+    }
+
+    private void grow(int capacity) {
+        types = Arrays.copyOf(types, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        lines = Arrays.copyOf(lines, capacity);
+        columns = Arrays.copyOf(columns, capacity);
+        symbols = Arrays.copyOf(symbols, capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public CharSequence getSource() {
+        return source;
+    }
+
+    public TokenType type(int index) {
+        return TYPES[types[index]];
+    }
+
+    public int start(int index) {
+        return starts[index];
+    }
+
+    public int length(int index) {
+        return lengths[index];
+    }
+
+    public int line(int index) {
+        return lines[index];
+    }
+
+    public int column(int index) {
+        return columns[index];
+    }
+
+    public int symbol(int index) {
+        return symbols[index];
+    }
+
+    public CharSequence lexeme(int index) {
+        return new SourceSlice(source, starts[index], lengths[index]);
+    }
+
+    public String value(int index) {
+        return Lexer.value(source, type(index), starts[index], lengths[index]);
+    }
+
+    public Token get(int index) {
+        return new Token(type(index), source, starts[index], lengths[index], lines[index], columns[index], symbols[index]);
+    }
+
+    // Same text as get(index).toString()
+    public String toString(int index) {
+        return "Token [type=" + type(index) + ", value=" + value(index) + ", line=" + lines[index] + "]";
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    // Reads the buffer by index; a Token is only created when a consumer asks for one
+    public class Cursor implements TokenStream {
+        private int position = 0;
+        private Token current;
+
+        @Override
+        public Token nextToken() {
+            Token token = peek();
+            if (token != null) {
+                position++;
+                current = null;
+            }
+            return token;
+        }
+
+        @Override
+        public Token peek() {
+            if (current == null && position < size) {
+                current = get(position);
+            }
+            return current;
+        }
+
+        @Override
+        public void skip() {
+            if (position < size) {
+                position++;
+                current = null;
+            }
+        }
+
+        @Override
+        public TokenType peekType() {
+            return position < size ? TYPES[types[position]] : null;
+        }
+
+        public int position() {
+            return position;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+public interface TokenStream {
+    // Consumes and returns the next token, or null once the stream is exhausted
+    Token nextToken();
+
+    // Returns the next token without consuming it, or null once the stream is exhausted
+    Token peek();
+
+    // Type of the next token, or null once the stream is exhausted. Streams backed by a
+    // TokenBuffer answer this without creating a Token.
+    default TokenType peekType() {
+        Token token = peek();
+        return token != null ? token.getType() : null;
+    }
+
+    // Consumes the next token without returning it
+    default void skip() {
+        nextToken();
+    }
+}
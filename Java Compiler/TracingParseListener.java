@@ -0,0 +1,47 @@
+import java.util.Arrays;
+
+// Records the parse trace Main has always shown and prints it once the parse is over: the start
+// banner, one line per production entered, and the error or the "Parsing finished." line at the
+// end. Printing afterwards keeps the output out of the parse's own time. Each parse replaces
+// the trace of the one before, so one listener can be used for every program.
+public class TracingParseListener implements ParseListener {
+    private static final Production[] PRODUCTIONS = Production.values();
+
+    // Ordinals of the productions entered, in order
+    private byte[] entered = new byte[256];
+    private int count;
+    private String error;
+
+    @Override
+    public void parseStarted() {
+        count = 0;
+        error = null;
+    }
+
+    @Override
+    public void enter(Production production, int position) {
+        if (count == entered.length) {
+            entered = Arrays.copyOf(entered, count * 2);
+        }
+        entered[count++] = (byte) production.ordinal();
+    }
+
+    @Override
+    public void parseFinished(String error) {
+        this.error = error;
+    }
+
+    // Prints the trace of the last parse
+    public void print(OutputSink out) {
+        out.println("Parsing program...");
+        for (int i = 0; i < count; i++) {
+            out.println(PRODUCTIONS[entered[i]].getTrace());
+        }
+        if (error != null) {
+            out.println("Error:");
+            out.println(error);
+        } else {
+            out.println("Parsing finished.");
+        }
+    }
+}
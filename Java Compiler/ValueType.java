@@ -0,0 +1,42 @@
+// The types a variable or expression can have. toString gives the spelling used in the source
+// and in messages.
+public enum ValueType {
+    INT("int"),
+    STRING("string"),
+    BOOLEAN("boolean"),
+    UNKNOWN("unknown");
+
+    private final String spelling;
+
+    ValueType(String spelling) {
+        this.spelling = spelling;
+    }
+
+    // The type a type keyword token declares, or UNKNOWN for any other token
+    public static ValueType of(TokenType keyword) {
+        if (keyword == TokenType.INT) {
+            return INT;
+        }
+        else if (keyword == TokenType.STRING) {
+            return STRING;
+        }
+        else if (keyword == TokenType.BOOLEAN) {
+            return BOOLEAN;
+        }
+        return UNKNOWN;
+    }
+
+    public static ValueType of(String spelling) {
+        for (ValueType type : values()) {
+            if (type.spelling.equals(spelling)) {
+                return type;
+            }
+        }
+        return UNKNOWN;
+    }
+
+    @Override
+    public String toString() {
+        return spelling;
+    }
+}
@@ -0,0 +1,279 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Throughput of each front-end phase on its own and of the whole pipeline, over generated
+// programs of several shapes and sizes. Run the way JMH runs a benchmark: warm-up iterations
+// that are thrown away, then timed iterations of a fixed length, each op's result kept live in
+// a sink field. Per-op allocation comes from the thread's allocated-bytes counter, the figure
+// JMH's GC profiler reports as gc.alloc.rate.norm. See README.md for how to run it.
+public class FrontEndBenchmark {
+    enum Phase {
+        LEX,
+        PARSE,
+        CST,
+        AST,
+        SYMBOL_LOOKUP,
+        PIPELINE
+    }
+
+    enum Shape {
+        // One block of declarations, assignments and prints
+        FLAT,
+        // Statements inside nested if and while blocks
+        DEEP,
+        // String variables assigned 64-letter literals. Names are single letters in this grammar,
+        // so long runs of letters only occur inside strings.
+        LONG_STRINGS,
+        // The FLAT program with a line comment and a block comment on every statement
+        COMMENTS,
+        // Nested blocks that each declare all 26 letters, so the symbol table fills many scopes
+        MANY_VARIABLES
+    }
+
+    // Made once and shared by every op, as Main makes one output per run
+    private static final ProgramOutput DISCARD = Main.output(new PrintStream(OutputStream.nullOutputStream()));
+    private static final int NESTING = 32;
+    private static final int STRING_LENGTH = 64;
+
+    // Results of every op land here so that the JIT cannot drop the work
+    static volatile Object sink;
+
+    public static void main(String[] args) {
+        List<Phase> phases = new ArrayList<>(Arrays.asList(Phase.values()));
+        List<Shape> shapes = new ArrayList<>(Arrays.asList(Shape.values()));
+        int[] sizes = { 1_000, 10_000, 100_000 };
+        int warmups = 3;
+        int iterations = 5;
+        long iterationMillis = 1000;
+
+        for (String arg : args) {
+            if (arg.startsWith("--phase=")) {
+                phases.clear();
+                for (String name : arg.substring("--phase=".length()).split(",")) {
+                    phases.add(Phase.valueOf(name.toUpperCase()));
+                }
+            }
+            else if (arg.startsWith("--shape=")) {
+                shapes.clear();
+                for (String name : arg.substring("--shape=".length()).split(",")) {
+                    shapes.add(Shape.valueOf(name.toUpperCase()));
+                }
+            }
+            else if (arg.startsWith("--size=")) {
+                sizes = Arrays.stream(arg.substring("--size=".length()).split(",")).mapToInt(Integer::parseInt).toArray();
+            }
+            else if (arg.startsWith("--warmup=")) {
+                warmups = Integer.parseInt(arg.substring("--warmup=".length()));
+            }
+            else if (arg.startsWith("--iterations=")) {
+                iterations = Integer.parseInt(arg.substring("--iterations=".length()));
+            }
+            else if (arg.startsWith("--time=")) {
+                iterationMillis = Long.parseLong(arg.substring("--time=".length()));
+            }
+            else {
+                System.err.println("Unknown option: " + arg);
+                System.exit(1);
+            }
+        }
+
+        System.out.printf("%-14s %-17s %8s %9s %14s %12s %10s %14s %10s%n", "Phase", "Shape", "Size", "Tokens",
+                "ops/s", "+-", "ns/token", "bytes/op", "MB/s");
+        for (Shape shape : shapes) {
+            for (int size : sizes) {
+                Input input = new Input(shape, size);
+                for (Phase phase : phases) {
+                    Result result = run(phase, input, warmups, iterations, iterationMillis);
+                    System.out.printf("%-14s %-17s %8d %9d %14.1f %12.1f %10.2f %14.0f %10.1f%n", phase, shape, size,
+                            input.units(phase), result.opsPerSecond, result.error, result.nanosPerUnit,
+                            result.bytesPerOp, result.bytesPerOp * result.opsPerSecond / (1 << 20));
+                }
+            }
+        }
+    }
+
+    // One program and everything the phases after lexing start from
+    static class Input {
+        final String source;
+        final TokenBuffer tokens;
+        final SymbolInterner symbols;
+        final SymbolTable symbolTable;
+        final String[] names;
+        final int[] scopes;
+
+        Input(Shape shape, int statements) {
+            this.source = program(shape, statements);
+            this.symbols = new SymbolInterner();
+            this.tokens = new Lexer(source, symbols).tokenizeBuffer();
+
+            AST ast = new AST(tokens.cursor(), symbols);
+            ast.Program();
+            this.symbolTable = ast.getSymbolTable();
+            List<SymbolTableEntry> entries = symbolTable.getEntries();
+            this.names = new String[entries.size()];
+            this.scopes = new int[entries.size()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = entries.get(i).getName();
+                scopes[i] = entries.get(i).getScope();
+            }
+        }
+
+        // What ns/unit is per: symbol lookups for SYMBOL_LOOKUP, tokens for the rest
+        int units(Phase phase) {
+            return phase == Phase.SYMBOL_LOOKUP ? names.length : tokens.size();
+        }
+    }
+
+    static Object op(Phase phase, Input input) {
+        switch (phase) {
+            case LEX:
+                return new Lexer(input.source, new SymbolInterner()).tokenizeBuffer();
+            case PARSE: {
+                Parser parser = new Parser(input.tokens.cursor());
+                parser.parse();
+                return parser;
+            }
+            case CST:
+                return new CSTBuilder(input.tokens.cursor()).parseProgram();
+            case AST:
+                return new AST(input.tokens.cursor(), input.symbols).Program();
+            case SYMBOL_LOOKUP: {
+                int found = 0;
+                for (int i = 0; i < input.names.length; i++) {
+                    if (input.symbolTable.getEntry(input.names[i], input.scopes[i]) != null) {
+                        found++;
+                    }
+                }
+                return found;
+            }
+            default:
+                Main.processProgram(input.source, 1, DISCARD);
+                return input;
+        }
+    }
+
+    static class Result {
+        double opsPerSecond;
+        double error;
+        double nanosPerUnit;
+        double bytesPerOp;
+    }
+
+    static Result run(Phase phase, Input input, int warmups, int iterations, long iterationMillis) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        for (int i = 0; i < warmups; i++) {
+            iteration(phase, input, iterationMillis);
+        }
+
+        double[] rates = new double[iterations];
+        long totalOps = 0;
+        long totalNanos = 0;
+        long totalBytes = 0;
+        for (int i = 0; i < iterations; i++) {
+            long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            long ops = iteration(phase, input, iterationMillis);
+            long nanos = System.nanoTime() - start;
+            totalBytes += threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+            totalOps += ops;
+            totalNanos += nanos;
+            rates[i] = ops * 1e9 / nanos;
+        }
+
+        Result result = new Result();
+        result.opsPerSecond = totalOps * 1e9 / totalNanos;
+        double variance = 0;
+        for (double rate : rates) {
+            variance += (rate - result.opsPerSecond) * (rate - result.opsPerSecond);
+        }
+        result.error = iterations > 1 ? Math.sqrt(variance / (iterations - 1)) : 0;
+        result.nanosPerUnit = (double) totalNanos / totalOps / Math.max(1, input.units(phase));
+        result.bytesPerOp = (double) totalBytes / totalOps;
+        return result;
+    }
+
+    // Runs ops until the time is up, always at least one; returns how many ran
+    private static long iteration(Phase phase, Input input, long iterationMillis) {
+        long deadline = System.nanoTime() + iterationMillis * 1_000_000;
+        long ops = 0;
+        do {
+            sink = op(phase, input);
+            ops++;
+        } while (System.nanoTime() < deadline);
+        return ops;
+    }
+
+    static String program(Shape shape, int statements) {
+        StringBuilder program = new StringBuilder("{\n");
+        // Variable names are single letters in this grammar
+        int variables = shape == Shape.MANY_VARIABLES ? 26 : 8;
+        String type = shape == Shape.LONG_STRINGS ? "string " : "int ";
+
+        declare(program, type, variables);
+        int depth = 0;
+        int written = variables;
+        for (int i = 0; written < statements; i++) {
+            char target = name(i % variables);
+            char other = name((i + 1) % variables);
+
+            if (shape == Shape.DEEP && i % 4 == 0) {
+                if (depth < NESTING) {
+                    program.append(i % 8 == 0 ? "if (" : "while (").append(target).append(" != ").append(other).append(") {\n");
+                    depth++;
+                }
+                else {
+                    while (depth > 0) {
+                        program.append("}\n");
+                        depth--;
+                    }
+                }
+            }
+            else if (shape == Shape.MANY_VARIABLES && i % 52 == 51 && depth < NESTING) {
+                // Scopes are nesting levels, so each new set of letters goes one block deeper
+                program.append("{\n");
+                depth++;
+                declare(program, type, variables);
+                written += variables;
+            }
+            else if (i % 3 == 2) {
+                program.append("print(").append(target).append(")");
+            }
+            else if (shape == Shape.LONG_STRINGS) {
+                program.append(target).append(" = \"");
+                for (int letter = 0; letter < STRING_LENGTH; letter++) {
+                    program.append(letter % 8 == 7 ? ' ' : name(i + letter));
+                }
+                program.append('"');
+            }
+            else {
+                program.append(target).append(" = 1+").append(other);
+            }
+            if (shape == Shape.COMMENTS) {
+                program.append(" /* statement ").append(i).append(" */ // and a line comment");
+            }
+            program.append('\n');
+            written++;
+        }
+        while (depth > 0) {
+            program.append("}\n");
+            depth--;
+        }
+        return program.append("}$\n").toString();
+    }
+
+    private static void declare(StringBuilder program, String type, int variables) {
+        for (int v = 0; v < variables; v++) {
+            program.append(type).append(name(v)).append('\n');
+        }
+    }
+
+    static char name(int index) {
+        return (char) ('a' + index % 26);
+    }
+}
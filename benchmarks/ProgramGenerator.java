@@ -0,0 +1,458 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Writes random programs for load and scaling tests, as much as asked for, straight to a file
+// or stdout. The same seed and options always give the same output. A valid program lexes,
+// parses and passes the semantic checks without errors; an invalid one has an error planted
+// in one phase, chosen at random. See README.md for the options.
+public class ProgramGenerator {
+    enum ErrorKind {
+        LEX,
+        PARSE,
+        SEMANTIC
+    }
+
+    private static final ValueType[] TYPES = { ValueType.INT, ValueType.STRING, ValueType.BOOLEAN };
+    private static final String[] BOOLEAN_OPS = { "==", "!=" };
+    private static final String[] UNKNOWN_CHARS = { "@", "#", ";", "%", "&" };
+    private static final int MAX_EXPRESSION_DEPTH = 3;
+    private static final int MAX_STRING_LENGTH = 12;
+    private static final int INDENT = 4;
+
+    private final SplittableRandom random;
+    private final int statements;
+    private final int maxDepth;
+    private final int symbolCount;
+    private final double commentRate;
+    private final double errorRate;
+
+    private Writer out;
+    private long written;
+    private final StringBuilder line = new StringBuilder();
+    // The type each letter is declared with at each nesting level. The semantic checks keep a
+    // level's declarations after its block closes, so this does too.
+    private final ValueType[][] declared;
+    // The type each letter is declared with in the block open at each level, which is what an
+    // assignment resolves through after its own level
+    private final ValueType[][] open;
+    private int depth;
+
+    ProgramGenerator(long seed, int statements, int maxDepth, int symbolCount, double commentRate, double errorRate) {
+        this.random = new SplittableRandom(seed);
+        this.statements = statements;
+        this.maxDepth = maxDepth;
+        this.symbolCount = symbolCount;
+        this.commentRate = commentRate;
+        this.errorRate = errorRate;
+        this.declared = new ValueType[maxDepth + 1][symbolCount];
+        this.open = new ValueType[maxDepth + 1][symbolCount];
+    }
+
+    public static void main(String[] args) throws IOException {
+        long seed = 1;
+        long programs = 1;
+        long size = -1;
+        int statements = 100;
+        int maxDepth = 4;
+        int symbolCount = 26;
+        double commentRate = 0.1;
+        double errorRate = 0;
+        String file = null;
+
+        for (String arg : args) {
+            if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(arg.substring("--seed=".length()));
+            }
+            else if (arg.startsWith("--programs=")) {
+                programs = Long.parseLong(arg.substring("--programs=".length()));
+            }
+            else if (arg.startsWith("--size=")) {
+                size = parseSize(arg.substring("--size=".length()));
+            }
+            else if (arg.startsWith("--statements=")) {
+                statements = Integer.parseInt(arg.substring("--statements=".length()));
+            }
+            else if (arg.startsWith("--depth=")) {
+                maxDepth = Integer.parseInt(arg.substring("--depth=".length()));
+            }
+            else if (arg.startsWith("--symbols=")) {
+                symbolCount = Integer.parseInt(arg.substring("--symbols=".length()));
+            }
+            else if (arg.startsWith("--comments=")) {
+                commentRate = Double.parseDouble(arg.substring("--comments=".length()));
+            }
+            else if (arg.startsWith("--errors=")) {
+                errorRate = Double.parseDouble(arg.substring("--errors=".length()));
+            }
+            else if (arg.startsWith("--out=")) {
+                file = arg.substring("--out=".length());
+            }
+            else {
+                usage("Unknown option: " + arg);
+            }
+        }
+        // Variable names are single letters, so a scope holds at most 26 of them
+        if (symbolCount < 1 || symbolCount > 26) {
+            usage("--symbols must be between 1 and 26");
+        }
+        if (statements < 1 || maxDepth < 0) {
+            usage("--statements must be at least 1 and --depth at least 0");
+        }
+        if (commentRate < 0 || commentRate > 1 || errorRate < 0 || errorRate > 1) {
+            usage("--comments and --errors must be between 0 and 1");
+        }
+
+        ProgramGenerator generator = new ProgramGenerator(seed, statements, maxDepth, symbolCount, commentRate, errorRate);
+        OutputStream stream = file == null ? System.out : Files.newOutputStream(Paths.get(file));
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.US_ASCII), 1 << 16)) {
+            generator.write(out, programs, size);
+        }
+    }
+
+    private static void usage(String message) {
+        System.err.println("Error: " + message);
+        System.err.println("Usage: java ProgramGenerator [--seed=N] [--programs=N | --size=BYTES[k|m|g]] [--statements=N]"
+                + " [--depth=N] [--symbols=N] [--comments=RATE] [--errors=RATE] [--out=FILE]");
+        System.exit(1);
+    }
+
+    // A byte count with an optional k, m or g suffix, in powers of 1024
+    static long parseSize(String text) {
+        String lower = text.toLowerCase();
+        int shift = 0;
+        if (lower.endsWith("k")) {
+            shift = 10;
+        }
+        else if (lower.endsWith("m")) {
+            shift = 20;
+        }
+        else if (lower.endsWith("g")) {
+            shift = 30;
+        }
+        if (shift > 0) {
+            lower = lower.substring(0, lower.length() - 1);
+        }
+        return Long.parseLong(lower) << shift;
+    }
+
+    // Writes the given number of programs, or if size is not negative, programs until at least
+    // size bytes are written. Returns the number of bytes written.
+    long write(Writer out, long programs, long size) throws IOException {
+        this.out = out;
+        this.written = 0;
+        for (long i = 0; size >= 0 ? written < size : i < programs; i++) {
+            program();
+        }
+        return written;
+    }
+
+    void program() throws IOException {
+        for (ValueType[] level : declared) {
+            Arrays.fill(level, null);
+        }
+        Arrays.fill(open[0], null);
+        depth = 0;
+        ErrorKind error = null;
+        int errorAt = -1;
+        if (random.nextDouble() < errorRate) {
+            error = ErrorKind.values()[random.nextInt(ErrorKind.values().length)];
+            errorAt = random.nextInt(statements);
+        }
+
+        line.append('{');
+        endLine();
+        depth++;
+        for (int i = 0; i < statements; i++) {
+            if (i == errorAt) {
+                plantError(error);
+            }
+            else {
+                statement();
+            }
+        }
+        while (depth > 1) {
+            closeBlock();
+        }
+        depth = 0;
+        line.append("}$\n");
+        out.append(line);
+        written += line.length();
+        line.setLength(0);
+    }
+
+    // The level the semantic checks give the statements being written: 0 inside the program's
+    // own braces
+    private int scope() {
+        return depth - 1;
+    }
+
+    private void statement() throws IOException {
+        double roll = random.nextDouble();
+        if (scope() < maxDepth && roll < 0.12) {
+            openBlock();
+        }
+        else if (scope() > 0 && roll < 0.22) {
+            closeBlock();
+        }
+        else if (roll < 0.45) {
+            declaration();
+        }
+        else if (roll < 0.8) {
+            assignment();
+        }
+        else {
+            line.append("print(").append(expression(TYPES[random.nextInt(TYPES.length)], 0)).append(')');
+            endLine();
+        }
+    }
+
+    private void openBlock() throws IOException {
+        int kind = random.nextInt(3);
+        if (kind == 0) {
+            line.append("if ").append(booleanExpression(0)).append(' ');
+        }
+        else if (kind == 1) {
+            line.append("while ").append(booleanExpression(0)).append(' ');
+        }
+        line.append('{');
+        endLine();
+        depth++;
+        Arrays.fill(open[scope()], null);
+    }
+
+    private void closeBlock() throws IOException {
+        depth--;
+        line.append('}');
+        endLine();
+    }
+
+    // Declares a letter not yet declared at this level, or assigns if every letter is
+    private void declaration() throws IOException {
+        int letter = freeLetter();
+        if (letter < 0) {
+            assignment();
+            return;
+        }
+        ValueType type = TYPES[random.nextInt(TYPES.length)];
+        declare(type, letter);
+    }
+
+    private void declare(ValueType type, int letter) throws IOException {
+        declared[scope()][letter] = type;
+        open[scope()][letter] = type;
+        line.append(type).append(' ').append(name(letter));
+        endLine();
+    }
+
+    // Assigns to a variable visible here, or declares one if there is none
+    private void assignment() throws IOException {
+        int letter = visibleLetter(null);
+        if (letter < 0) {
+            if (freeLetter() >= 0) {
+                declaration();
+            }
+            else {
+                line.append("print(").append(intExpression(0)).append(')');
+                endLine();
+            }
+            return;
+        }
+        line.append(name(letter)).append(" = ").append(assignedExpression(visible(letter)));
+        endLine();
+    }
+
+    // The right side of an assignment. The semantic checks look an identifier there up in the
+    // current level only, so only variables declared at this level are used.
+    private String assignedExpression(ValueType type) {
+        int letter = levelLetter(type);
+        if (letter >= 0 && random.nextInt(4) == 0) {
+            return String.valueOf(name(letter));
+        }
+        return literalExpression(type, 0);
+    }
+
+    private String expression(ValueType type, int nesting) {
+        int letter = visibleLetter(type);
+        if (letter >= 0 && random.nextInt(3) == 0) {
+            return String.valueOf(name(letter));
+        }
+        return literalExpression(type, nesting);
+    }
+
+    private String literalExpression(ValueType type, int nesting) {
+        if (type == ValueType.INT) {
+            return intExpression(nesting);
+        }
+        else if (type == ValueType.STRING) {
+            return stringLiteral();
+        }
+        return booleanExpression(nesting);
+    }
+
+    // A digit, or a digit plus another int expression
+    private String intExpression(int nesting) {
+        String digit = String.valueOf(random.nextInt(10));
+        if (nesting < MAX_EXPRESSION_DEPTH && random.nextInt(3) > 0) {
+            return digit + "+" + expression(ValueType.INT, nesting + 1);
+        }
+        return digit;
+    }
+
+    // A boolean literal, or two expressions of the same type compared
+    private String booleanExpression(int nesting) {
+        if (nesting >= MAX_EXPRESSION_DEPTH || random.nextInt(3) == 0) {
+            return random.nextBoolean() ? "true" : "false";
+        }
+        ValueType type = TYPES[random.nextInt(TYPES.length)];
+        return "(" + expression(type, nesting + 1) + " " + BOOLEAN_OPS[random.nextInt(BOOLEAN_OPS.length)] + " "
+                + expression(type, nesting + 1) + ")";
+    }
+
+    // Letters and spaces, the only characters a string can hold
+    private String stringLiteral() {
+        int length = 1 + random.nextInt(MAX_STRING_LENGTH);
+        StringBuilder string = new StringBuilder(length + 2).append('"');
+        for (int i = 0; i < length; i++) {
+            string.append(i > 0 && i < length - 1 && random.nextInt(5) == 0 ? ' ' : name(random.nextInt(26)));
+        }
+        return string.append('"').toString();
+    }
+
+    private void plantError(ErrorKind error) throws IOException {
+        int variant = random.nextInt(2);
+        switch (error) {
+            case LEX:
+                if (variant == 0) {
+                    line.append(name(random.nextInt(symbolCount))).append(" = 1 ").append(UNKNOWN_CHARS[random.nextInt(UNKNOWN_CHARS.length)]);
+                }
+                else {
+                    // Digits are not allowed in strings
+                    line.append("print(\"a").append(random.nextInt(10)).append("b\")");
+                }
+                endLine();
+                break;
+            case PARSE:
+                if (variant == 0) {
+                    line.append("print(").append(intExpression(0));
+                }
+                else {
+                    line.append(name(random.nextInt(symbolCount))).append(' ').append(intExpression(0));
+                }
+                endLine();
+                break;
+            default: {
+                int letter = visibleLetter(null);
+                if (variant == 0 && letter >= 0) {
+                    // A value of another type
+                    ValueType other = TYPES[(visible(letter).ordinal() + 1 + random.nextInt(TYPES.length - 1)) % TYPES.length];
+                    line.append(name(letter)).append(" = ").append(literalExpression(other, 0));
+                    endLine();
+                }
+                else {
+                    // The same letter declared twice at one level
+                    letter = freeLetter();
+                    if (letter < 0) {
+                        letter = random.nextInt(symbolCount);
+                    }
+                    else {
+                        declare(TYPES[random.nextInt(TYPES.length)], letter);
+                    }
+                    line.append(TYPES[random.nextInt(TYPES.length)]).append(' ').append(name(letter));
+                    endLine();
+                }
+                break;
+            }
+        }
+    }
+
+    // Writes the line built so far, indented for the current depth, maybe with a comment
+    private void endLine() throws IOException {
+        if (random.nextDouble() < commentRate) {
+            if (random.nextBoolean()) {
+                line.append(" // ").append(words());
+            }
+            else {
+                line.append(" /* ").append(words()).append(" */");
+            }
+        }
+        line.append('\n');
+        int indent = Math.max(0, depth - 1) * INDENT;
+        for (int i = 0; i < indent; i++) {
+            out.write(' ');
+        }
+        out.append(line);
+        written += indent + line.length();
+        line.setLength(0);
+    }
+
+    private String words() {
+        StringBuilder words = new StringBuilder();
+        int count = 1 + random.nextInt(6);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                words.append(' ');
+            }
+            int length = 1 + random.nextInt(8);
+            for (int c = 0; c < length; c++) {
+                words.append(name(random.nextInt(26)));
+            }
+        }
+        return words.toString();
+    }
+
+    // The type an assignment to letter resolves to here: this level, including blocks at it that
+    // have closed, then the open blocks around this one
+    private ValueType visible(int letter) {
+        if (declared[scope()][letter] != null) {
+            return declared[scope()][letter];
+        }
+        for (int level = scope() - 1; level >= 0; level--) {
+            if (open[level][letter] != null) {
+                return open[level][letter];
+            }
+        }
+        return null;
+    }
+
+    // A random letter visible here with the given type, or any type if type is null; -1 if none
+    private int visibleLetter(ValueType type) {
+        int start = random.nextInt(symbolCount);
+        for (int i = 0; i < symbolCount; i++) {
+            int letter = (start + i) % symbolCount;
+            ValueType found = visible(letter);
+            if (found != null && (type == null || found == type)) {
+                return letter;
+            }
+        }
+        return -1;
+    }
+
+    // A random letter declared at this level with the given type, or -1 if none
+    private int levelLetter(ValueType type) {
+        int start = random.nextInt(symbolCount);
+        for (int i = 0; i < symbolCount; i++) {
+            int letter = (start + i) % symbolCount;
+            if (declared[scope()][letter] == type) {
+                return letter;
+            }
+        }
+        return -1;
+    }
+
+    // A random letter not yet declared at this level, or -1 if none
+    private int freeLetter() {
+        return levelLetter(null);
+    }
+
+    static char name(int letter) {
+        return (char) ('a' + letter);
+    }
+}
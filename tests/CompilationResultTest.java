@@ -0,0 +1,59 @@
+// Checks that nothing in a CompilationResult can be changed once Compiler.compile has returned
+// it. Run from the repository root:
+//
+//   javac -d out "Java Compiler"/*.java tests/*.java
+//   java -cp out CompilationResultTest
+//
+// Exits with status 1 if any check fails.
+public class CompilationResultTest {
+    private static final String PROGRAM = "{ int a a = 1 string s s = \"hi\" print(s) }$";
+
+    private static int failures;
+
+    public static void main(String[] args) {
+        CompilationResult result = Compiler.compile(PROGRAM);
+        expectThrows("token list", () -> result.getTokens().remove(0));
+        expectThrows("lex warnings", () -> result.getLexWarnings().add("warning"));
+        expectThrows("semantic errors", () -> result.getSemanticErrors().add("error"));
+        expectThrows("semantic warnings", () -> result.getSemanticWarnings().clear());
+        expectThrows("symbols", () -> result.getSymbols().remove(0));
+
+        ProgramNode cst = result.getCst();
+        expectThrows("CST addChild", () -> cst.children.get(0).addChild(new EOFNode()));
+        expectThrows("CST children", () -> cst.children.clear());
+        ProgramASTNode ast = result.getAst();
+        expectThrows("AST addChild", () -> ast.children.get(0).addChild(new EOFASTNode()));
+        expectThrows("AST children", () -> ast.children.remove(0));
+
+        CompilationResult arenaResult = Compiler.compile(PROGRAM, Compiler.Options.DEFAULTS.withArena(true));
+        ASTArena arena = arenaResult.getAstArena();
+        int size = arena.size();
+        expectThrows("arena add", () -> arena.add(ASTNode.Kind.EOF));
+        expectThrows("arena addChild", () -> arena.addChild(arena.root(), arena.root()));
+        expectThrows("arena tokens", () -> arena.getTokens().add(TokenType.EOF, 0, 1, 1, 1));
+        if (arena.size() != size) {
+            fail("arena size changed from " + size + " to " + arena.size());
+        }
+
+        if (failures > 0) {
+            System.out.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("All checks passed");
+    }
+
+    private static void expectThrows(String what, Runnable change) {
+        try {
+            change.run();
+            fail(what + " could be changed");
+        }
+        catch (UnsupportedOperationException | IllegalStateException e) {
+            // Expected
+        }
+    }
+
+    private static void fail(String message) {
+        failures++;
+        System.out.println("FAIL " + message);
+    }
+}
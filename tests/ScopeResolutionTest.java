@@ -0,0 +1,53 @@
+import java.util.List;
+
+// Checks how assignments resolve a name through nested and closed blocks, with every tree
+// builder. Run from the repository root:
+//
+//   javac -d out "Java Compiler"/*.java tests/*.java
+//   java -cp out ScopeResolutionTest
+//
+// Exits with status 1 if any check fails.
+public class ScopeResolutionTest {
+    private static int failures;
+
+    public static void main(String[] args) {
+        // A sibling block that has closed does not hide the declaration around it
+        expectErrors("{ int a { string a } { { a = 1 } } print(a) }$");
+        // The innermost enclosing declaration wins over the first one declared
+        expectErrors("{ int a { string a { a = 1 } } }$",
+                "Variable 'a' declared as 'string' but assigned a value of type 'int'.");
+        // A variable declared in a block that has closed is still accepted
+        expectErrors("{ { int a } a = 1 }$");
+        // A closed block at the current level is found first, as it always was
+        expectErrors("{ int a { { string a } { a = \"x\" } } }$");
+
+        if (failures > 0) {
+            System.out.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("All checks passed");
+    }
+
+    private static void expectErrors(String program, String... expected) {
+        List<String> wanted = List.of(expected);
+        check("AST", program, wanted, astErrors(program));
+        check("FrontEnd", program, wanted, Compiler.compile(program).getSemanticErrors());
+        check("ASTArenaBuilder", program, wanted,
+                Compiler.compile(program, Compiler.Options.DEFAULTS.withArena(true)).getSemanticErrors());
+    }
+
+    private static List<String> astErrors(String program) {
+        AST ast = new AST(new Lexer(program).tokenizeBuffer().cursor());
+        ast.Program();
+        return ast.getErrors();
+    }
+
+    private static void check(String builder, String program, List<String> expected, List<String> actual) {
+        if (!expected.equals(actual)) {
+            failures++;
+            System.out.println("FAIL " + builder + ": " + program);
+            System.out.println("  expected " + expected);
+            System.out.println("  but was  " + actual);
+        }
+    }
+}